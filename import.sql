@@ -1,11 +1,14 @@
 DROP TABLE IF EXISTS "authors";
 DROP SEQUENCE IF EXISTS authors_id_seq;
-CREATE SEQUENCE authors_id_seq INCREMENT 1 MINVALUE 1 MAXVALUE 9223372036854775807 CACHE 1;
+-- INCREMENT must match @SequenceGenerator(allocationSize) on AuthorEntity, ids are handed out in blocks
+CREATE SEQUENCE authors_id_seq INCREMENT 50 START 101 MINVALUE 1 MAXVALUE 9223372036854775807 CACHE 1;
 
 CREATE TABLE "authors" (
     "id" bigint DEFAULT nextval('authors_id_seq') NOT NULL,
     "name" text,
     "age" integer,
+    "version" bigint DEFAULT 0 NOT NULL,
+    "book_count" integer DEFAULT 0 NOT NULL,
     CONSTRAINT "authors_pkey" PRIMARY KEY ("id")
 ) WITH (oids = false);
 
@@ -116,6 +119,7 @@ CREATE TABLE "books" (
     "isbn" text NOT NULL,
     "title" text,
     "author_id" bigint,
+    "version" bigint DEFAULT 0 NOT NULL,
     CONSTRAINT "books_pkey" PRIMARY KEY ("isbn")
 ) WITH (oids = false);
 
@@ -223,4 +227,11 @@ INSERT INTO "books" ("isbn", "title", "author_id") VALUES
 
 ALTER TABLE ONLY "books" ADD CONSTRAINT "books_author_id_fkey" FOREIGN KEY (author_id) REFERENCES authors(id) NOT DEFERRABLE;
 
+CREATE INDEX "books_title_isbn_idx" ON "books" ("title", "isbn");
+
+CREATE INDEX "books_author_id_isbn_idx" ON "books" ("author_id", "isbn");
+
+-- kept in step by the book writes from here on
+UPDATE "authors" SET "book_count" = (SELECT COUNT(*) FROM "books" WHERE "books"."author_id" = "authors"."id");
+
 -- 2023-03-04 14:45:58.424592+00
@@ -0,0 +1,46 @@
+package com.example.Library.benchmarks;
+
+import com.example.Library.LibraryApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Boots the application against a private in-memory H2 database so benchmarks
+ * never need a running Postgres.
+ */
+public final class BenchmarkContexts {
+
+    private BenchmarkContexts() {
+        throw new UnsupportedOperationException("Utility classes cannot be constructed");
+    }
+
+    public static ConfigurableApplicationContext startWithH2(String... extraProperties) {
+        return startWithH2(WebApplicationType.NONE, extraProperties);
+    }
+
+    public static ConfigurableApplicationContext startWithH2(WebApplicationType webApplicationType, String... extraProperties) {
+        return startWithH2("bench-" + UUID.randomUUID(), webApplicationType, extraProperties);
+    }
+
+    //a named database can be opened by a second context (e.g. over R2DBC) in the same JVM
+    public static ConfigurableApplicationContext startWithH2(String database, WebApplicationType webApplicationType, String... extraProperties) {
+        List<String> properties = new ArrayList<>(List.of(
+                "spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1",
+                "spring.datasource.driver-class-name=org.h2.Driver",
+                "spring.datasource.username=sa",
+                "spring.datasource.password=",
+                "spring.main.banner-mode=off",
+                "logging.level.root=WARN"));
+        properties.addAll(Arrays.asList(extraProperties));
+        // passed as command line arguments so they win over application.properties
+        return new SpringApplicationBuilder(LibraryApplication.class)
+                .web(webApplicationType)
+                .run(properties.stream().map(property -> "--" + property).toArray(String[]::new));
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.Library.benchmarks;
+
+import com.example.Library.cache.BloomFilter;
+import com.example.Library.hotkeys.HotKeyTracker;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What {@link HotKeyTracker#record} adds to every read by key, over isbns drawn from a
+ * Zipf distribution (a few books take most of the reads), on one thread and on four
+ * threads sharing the sketch's counters (only meaningful with four cores or more).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HotKeyBenchmark {
+
+    private static final int BOOKS = 100_000;
+
+    private HotKeyTracker<String> tracker;
+    private String[] isbns;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next = new Random().nextInt();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tracker = new HotKeyTracker<>(BloomFilter::hash, 16384, 100);
+        double[] cumulative = new double[BOOKS];
+        double total = 0;
+        for (int rank = 0; rank < BOOKS; rank++) {
+            total += 1.0 / (rank + 1);
+            cumulative[rank] = total;
+        }
+        Random random = new Random(42);
+        isbns = new String[1 << 16];
+        for (int i = 0; i < isbns.length; i++) {
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+            isbns[i] = "978-" + (rank < 0 ? -rank - 1 : rank);
+        }
+    }
+
+    @Benchmark
+    public void record(Cursor cursor) {
+        tracker.record(isbns[cursor.next++ & (isbns.length - 1)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordContended(Cursor cursor) {
+        tracker.record(isbns[cursor.next++ & (isbns.length - 1)]);
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.Library.benchmarks;
+
+import com.example.Library.config.MapperConfig;
+import com.example.Library.config.MethodTimingPostProcessor;
+import com.example.Library.domain.DTO.AuthorDTO;
+import com.example.Library.domain.DTO.BookDTO;
+import com.example.Library.domain.Entities.AuthorEntity;
+import com.example.Library.domain.Entities.BookEntity;
+import com.example.Library.mappers.Mapper;
+import com.example.Library.mappers.impl.AuthorMapperImpl;
+import com.example.Library.mappers.impl.AuthorModelMapperImpl;
+import com.example.Library.mappers.impl.BookMapperImpl;
+import com.example.Library.mappers.impl.BookModelMapperImpl;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapperBenchmark {
+
+    @Param({"direct", "modelmapper"})
+    private String engine;
+
+    //true wraps the mappers in the library.mapper timers, with the histogram of application.properties
+    @Param({"false", "true"})
+    private boolean timed;
+
+    private Mapper<AuthorEntity, AuthorDTO> authorMapper;
+    private Mapper<BookEntity, BookDTO> bookMapper;
+
+    private AuthorEntity authorEntity;
+    private AuthorDTO authorDTO;
+    private BookEntity bookEntity;
+    private BookDTO bookDTO;
+
+    @Setup
+    public void setUp() {
+        if ("direct".equals(engine)) {
+            AuthorMapperImpl directAuthorMapper = new AuthorMapperImpl();
+            authorMapper = directAuthorMapper;
+            bookMapper = new BookMapperImpl(directAuthorMapper);
+        } else {
+            ModelMapper modelMapper = new MapperConfig().modelMapper();
+            authorMapper = new AuthorModelMapperImpl(modelMapper);
+            bookMapper = new BookModelMapperImpl(modelMapper);
+        }
+        if (timed) {
+            PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+            registry.config().meterFilter(new MeterFilter() {
+                @Override
+                public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                    return DistributionStatisticConfig.builder().percentilesHistogram(true).build().merge(config);
+                }
+            });
+            MethodTimingPostProcessor timing = new MethodTimingPostProcessor(() -> registry);
+            authorMapper = timed(timing, authorMapper);
+            bookMapper = timed(timing, bookMapper);
+        }
+
+        authorEntity = AuthorEntity.builder().id(1L).name("Abigail Rose").age(80).build();
+        authorDTO = AuthorDTO.builder().id(1L).name("Abigail Rose").age(80).build();
+        bookEntity = BookEntity.builder().isbn("978-1-2345-6789-0").title("The Shadow in the Attic").authorEntity(authorEntity).build();
+        bookDTO = BookDTO.builder().isbn("978-1-2345-6789-0").title("The Shadow in the Attic").authorEntity(authorDTO).build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T timed(MethodTimingPostProcessor timing, T mapper) {
+        return (T) timing.postProcessAfterInitialization(mapper, mapper.getClass().getSimpleName());
+    }
+
+    @Benchmark
+    public AuthorDTO authorMapTo() {
+        return authorMapper.mapTo(authorEntity);
+    }
+
+    @Benchmark
+    public AuthorEntity authorMapFrom() {
+        return authorMapper.mapFrom(authorDTO);
+    }
+
+    @Benchmark
+    public BookDTO bookMapTo() {
+        return bookMapper.mapTo(bookEntity);
+    }
+
+    @Benchmark
+    public BookEntity bookMapFrom() {
+        return bookMapper.mapFrom(bookDTO);
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.Library.benchmarks;
+
+import com.example.Library.Services.AuthorService;
+import com.example.Library.Services.BookService;
+import com.example.Library.domain.Entities.AuthorEntity;
+import com.example.Library.domain.Entities.BookEntity;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the blocking servlet read path with the WebFlux/R2DBC one on the same H2
+ * dataset. The data is always written through the servlet application; for
+ * {@code stack=reactive} the reactive application is started on top of the same
+ * in-memory database. The reactive stack is only on the classpath with
+ * {@code -Pjmh,reactive}. The book cache is off so both stacks hit the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ReadStackBenchmark {
+
+    private static final String REACTIVE_APPLICATION = "com.example.Library.reactive.ReactiveLibraryApplication";
+
+    @Param({"servlet", "reactive"})
+    private String stack;
+
+    @Param({"200"})
+    private int concurrency;
+
+    @Param({"1000"})
+    private int books;
+
+    private ConfigurableApplicationContext servletContext;
+    private ConfigurableApplicationContext reactiveContext;
+    private ExecutorService clientExecutor;
+    private HttpClient client;
+    private URI[] bookUris;
+    private URI pageUri;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ClassNotFoundException {
+        String database = "stack-" + System.nanoTime();
+        servletContext = BenchmarkContexts.startWithH2(database, WebApplicationType.SERVLET,
+                "server.port=0",
+                "library.cache.books.max-size=0");
+        BookService bookService = servletContext.getBean(BookService.class);
+        AuthorService authorService = servletContext.getBean(AuthorService.class);
+        AuthorEntity author = authorService.save(AuthorEntity.builder().name("Author").age(40).build());
+        String[] isbns = new String[books];
+        for (int i = 0; i < books; i++) {
+            isbns[i] = String.format("978-2-%04d-%04d-0", i / 10_000, i % 10_000);
+            bookService.createUpdateBook(isbns[i], BookEntity.builder().title("Title " + i).authorEntity(author).build());
+        }
+
+        String port = servletContext.getEnvironment().getProperty("local.server.port");
+        if (stack.equals("reactive")) {
+            reactiveContext = new SpringApplicationBuilder(Class.forName(REACTIVE_APPLICATION))
+                    .profiles("reactive")
+                    .run("--server.port=0",
+                            "--spring.r2dbc.url=r2dbc:h2:mem:///" + database + ";DB_CLOSE_DELAY=-1",
+                            "--spring.r2dbc.username=sa",
+                            "--spring.r2dbc.password=",
+                            "--spring.main.banner-mode=off",
+                            "--logging.level.root=WARN");
+            port = reactiveContext.getEnvironment().getProperty("local.server.port");
+        }
+        bookUris = new URI[books];
+        for (int i = 0; i < books; i++) {
+            bookUris[i] = URI.create("http://localhost:" + port + "/books/" + isbns[i]);
+        }
+        pageUri = URI.create("http://localhost:" + port + "/books?page=0&size=50");
+        clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(clientExecutor).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        clientExecutor.shutdownNow();
+        if (reactiveContext != null) {
+            reactiveContext.close();
+        }
+        servletContext.close();
+    }
+
+    @Benchmark
+    public void getBookBurst() {
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            cursor = (cursor + 1) % bookUris.length;
+            responses[i] = send(bookUris[cursor]);
+        }
+        CompletableFuture.allOf(responses).join();
+    }
+
+    @Benchmark
+    public void listBooksBurst() {
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            responses[i] = send(pageUri);
+        }
+        CompletableFuture.allOf(responses).join();
+    }
+
+    private CompletableFuture<HttpResponse<Void>> send(URI uri) {
+        return client.sendAsync(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.discarding());
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.Library.benchmarks;
+
+import com.example.Library.domain.DTO.BookDTO;
+import com.example.Library.domain.Entities.AuthorEntity;
+import com.example.Library.domain.Entities.BookEntity;
+import com.example.Library.mappers.impl.AuthorMapperImpl;
+import com.example.Library.mappers.impl.BookMapperImpl;
+import com.example.Library.search.BookSearchIndex;
+import com.example.Library.search.WriteSequences;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency of {@link BookSearchIndex} over a synthetic catalog. Titles draw from a
+ * vocabulary that grows with the catalog (a few common words, many rare ones), so the
+ * work per query is bounded by posting list length, not by the number of books.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    private static final String[] COMMON_WORDS = {"the", "of", "and", "night", "house", "river", "last", "secret"};
+
+    @Param({"10000", "200000"})
+    private int books;
+
+    private BookSearchIndex index;
+    private String[] queries;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AuthorMapperImpl authorMapper = new AuthorMapperImpl();
+        index = new BookSearchIndex(new BookMapperImpl(authorMapper), authorMapper, new WriteSequences());
+        Random random = new Random(42);
+        int rareWords = books / 4;
+        AuthorEntity[] authors = new AuthorEntity[Math.max(1, books / 10)];
+        for (int i = 0; i < authors.length; i++) {
+            authors[i] = AuthorEntity.builder().id((long) i).name("Author" + word(i) + " " + word(random.nextInt(rareWords))).age(40).version(0L).build();
+        }
+        index.rebuild(sink -> {
+            for (int i = 0; i < books; i++) {
+                String title = COMMON_WORDS[random.nextInt(COMMON_WORDS.length)] + " " + word(random.nextInt(rareWords)) + " " + word(random.nextInt(rareWords));
+                sink.accept(BookEntity.builder().isbn("isbn-" + i).title(title).authorEntity(authors[i % authors.length]).version(0L).build());
+            }
+        });
+        queries = new String[1024];
+        for (int i = 0; i < queries.length; i++) {
+            String rare = word(random.nextInt(rareWords));
+            queries[i] = switch (i % 3) {
+                case 0 -> rare;
+                case 1 -> COMMON_WORDS[i % COMMON_WORDS.length] + " " + rare.substring(0, Math.min(4, rare.length()));
+                default -> rare + " " + COMMON_WORDS[i % COMMON_WORDS.length].substring(0, 2);
+            };
+        }
+    }
+
+    //base-26 words, so neighbouring ids share prefixes like real vocabulary does
+    private static String word(int id) {
+        StringBuilder word = new StringBuilder("w");
+        do {
+            word.append((char) ('a' + id % 26));
+            id /= 26;
+        } while (id > 0);
+        return word.toString();
+    }
+
+    @Benchmark
+    public List<BookDTO> search() {
+        cursor = (cursor + 1) & (queries.length - 1);
+        return index.search(queries[cursor], 20);
+    }
+}
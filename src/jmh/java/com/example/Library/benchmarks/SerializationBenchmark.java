@@ -0,0 +1,45 @@
+package com.example.Library.benchmarks;
+
+import com.example.Library.domain.DTO.AuthorDTO;
+import com.example.Library.domain.DTO.BookDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    private ObjectMapper objectMapper;
+    private Page<BookDTO> page;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        List<BookDTO> books = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            AuthorDTO author = AuthorDTO.builder().id((long) i).name("Author " + i).age(20 + i % 60).build();
+            books.add(BookDTO.builder().isbn("978-0-0000-" + String.format("%04d", i)).title("Title " + i).authorEntity(author).build());
+        }
+        page = new PageImpl<>(books, PageRequest.of(0, pageSize), 10_000);
+    }
+
+    @Benchmark
+    public byte[] serializeBookPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.Library.benchmarks;
+
+import com.example.Library.Services.AuthorService;
+import com.example.Library.Services.BookService;
+import com.example.Library.domain.Entities.AuthorEntity;
+import com.example.Library.domain.Entities.BookEntity;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+
+    @Param({"1000"})
+    private int books;
+
+    @Param({"direct"})
+    private String mapperEngine;
+
+    //false drops the method timers and Hibernate statistics, the difference is the instrumentation overhead
+    @Param({"true", "false"})
+    private boolean metrics;
+
+    private ConfigurableApplicationContext context;
+    private BookService bookService;
+    private AuthorService authorService;
+
+    private String[] isbns;
+    private Long[] authorIds;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.startWithH2("library.mapper.engine=" + mapperEngine, "library.metrics.enabled=" + metrics);
+        bookService = context.getBean(BookService.class);
+        authorService = context.getBean(AuthorService.class);
+
+        int authors = Math.max(1, books / 10);
+        AuthorEntity[] savedAuthors = new AuthorEntity[authors];
+        authorIds = new Long[authors];
+        for (int i = 0; i < authors; i++) {
+            AuthorEntity author = AuthorEntity.builder().name("Author " + i).age(20 + i % 60).build();
+            savedAuthors[i] = authorService.save(author);
+            authorIds[i] = savedAuthors[i].getId();
+        }
+        isbns = new String[books];
+        for (int i = 0; i < books; i++) {
+            isbns[i] = String.format("978-0-%04d-%04d-0", i / 10_000, i % 10_000);
+            BookEntity book = BookEntity.builder().title("Title " + i).authorEntity(savedAuthors[i % authors]).build();
+            bookService.createUpdateBook(isbns[i], book);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private int next(int bound) {
+        cursor = (cursor + 1) % bound;
+        return cursor;
+    }
+
+    @Benchmark
+    public Optional<BookEntity> bookFindOne() {
+        return bookService.findOne(isbns[next(isbns.length)]);
+    }
+
+    @Benchmark
+    public Page<BookEntity> bookFindAllPage() {
+        return bookService.findAll(PageRequest.of(next(isbns.length / 20), 20));
+    }
+
+    @Benchmark
+    public boolean bookIsExist() {
+        return bookService.isExist(isbns[next(isbns.length)]);
+    }
+
+    @Benchmark
+    public Optional<AuthorEntity> authorFindOne() {
+        return authorService.findOne(authorIds[next(authorIds.length)]);
+    }
+
+    @Benchmark
+    public List<AuthorEntity> authorFindAll() {
+        return authorService.findAll();
+    }
+}
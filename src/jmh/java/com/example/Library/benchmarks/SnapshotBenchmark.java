@@ -0,0 +1,115 @@
+package com.example.Library.benchmarks;
+
+import com.example.Library.Services.AuthorService;
+import com.example.Library.Services.BookService;
+import com.example.Library.domain.DTO.BookDTO;
+import com.example.Library.domain.Entities.AuthorEntity;
+import com.example.Library.domain.Entities.BookEntity;
+import com.example.Library.snapshot.CatalogSnapshots;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Catalog reads from the snapshot against the cached and the plain JPA path. The setup
+ * also prints the heap the snapshot takes next to the heap the same catalog takes as
+ * loaded entities.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnapshotBenchmark {
+
+    @Param({"10000"})
+    private int books;
+
+    //jpa is the cache-aside path with both caches turned off
+    @Param({"snapshot", "cache", "jpa"})
+    private String mode;
+
+    private ConfigurableApplicationContext context;
+    private BookService bookService;
+
+    private String[] isbns;
+    private Long[] authorIds;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = switch (mode) {
+            //refreshed by hand below, once the catalog is written
+            case "snapshot" -> BenchmarkContexts.startWithH2("library.snapshot.enabled=true", "library.snapshot.refresh=1h");
+            case "cache" -> BenchmarkContexts.startWithH2();
+            case "jpa" -> BenchmarkContexts.startWithH2("library.cache.books.max-size=0", "library.cache.authors.max-size=0");
+            default -> throw new IllegalArgumentException("Unknown mode: " + mode);
+        };
+        bookService = context.getBean(BookService.class);
+        AuthorService authorService = context.getBean(AuthorService.class);
+
+        int authors = Math.max(1, books / 10);
+        AuthorEntity[] savedAuthors = new AuthorEntity[authors];
+        authorIds = new Long[authors];
+        for (int i = 0; i < authors; i++) {
+            savedAuthors[i] = authorService.save(AuthorEntity.builder().name("Author " + i).age(20 + i % 60).build());
+            authorIds[i] = savedAuthors[i].getId();
+        }
+        isbns = new String[books];
+        for (int i = 0; i < books; i++) {
+            isbns[i] = String.format("978-0-%04d-%04d-0", i / 10_000, i % 10_000);
+            //few distinct titles, as series and editions repeat them
+            BookEntity book = BookEntity.builder().title("Title " + i % 500).authorEntity(savedAuthors[i % authors]).build();
+            bookService.createUpdateBook(isbns[i], book);
+        }
+
+        if (mode.equals("snapshot")) {
+            CatalogSnapshots snapshots = context.getBean(CatalogSnapshots.class);
+            snapshots.rebuild();
+            System.out.println("snapshot heap (estimated): " + snapshots.current().getEstimatedBytes() + " bytes");
+        } else {
+            long before = usedHeap();
+            List<BookEntity> entities = bookService.findAll();
+            System.out.println("entity heap (measured): " + (usedHeap() - before) + " bytes for " + entities.size() + " books");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private int next(int bound) {
+        cursor = (cursor + 1) % bound;
+        return cursor;
+    }
+
+    @Benchmark
+    public Optional<BookDTO> bookFindOneDTO() {
+        return bookService.findOneDTO(isbns[next(isbns.length)]);
+    }
+
+    @Benchmark
+    public Page<BookDTO> bookPage() {
+        return bookService.findAllDTOs(PageRequest.of(next(isbns.length / 20), 20));
+    }
+
+    @Benchmark
+    public List<BookEntity> authorBooks() {
+        return bookService.findAllByAuthorAfter(authorIds[next(authorIds.length)], null, 20);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.Library.benchmarks;
+
+import com.example.Library.Services.AuthorService;
+import com.example.Library.Services.BookService;
+import com.example.Library.domain.Entities.AuthorEntity;
+import com.example.Library.domain.Entities.BookEntity;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires {@code concurrency} simultaneous GET /books/{isbn} requests at a running server
+ * and waits for all of them, once with the Tomcat platform thread pool and once with
+ * virtual threads (plus the database bulkhead). The book cache is switched off so every
+ * request reaches the database. Score is bursts per second; non-200 answers (503s from
+ * the bulkhead) are counted in {@link #rejected}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class VirtualThreadLoadBenchmark {
+
+    @Param({"false", "true"})
+    private boolean virtualThreads;
+
+    @Param({"500"})
+    private int concurrency;
+
+    @Param({"1000"})
+    private int books;
+
+    private ConfigurableApplicationContext context;
+    private ExecutorService clientExecutor;
+    private HttpClient client;
+    private URI[] uris;
+    private int cursor;
+
+    public long rejected;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.startWithH2(WebApplicationType.SERVLET,
+                "server.port=0",
+                "spring.threads.virtual.enabled=" + virtualThreads,
+                "library.cache.books.max-size=0");
+        BookService bookService = context.getBean(BookService.class);
+        AuthorService authorService = context.getBean(AuthorService.class);
+        AuthorEntity author = authorService.save(AuthorEntity.builder().name("Author").age(40).build());
+        String port = context.getEnvironment().getProperty("local.server.port");
+        uris = new URI[books];
+        for (int i = 0; i < books; i++) {
+            String isbn = String.format("978-1-%04d-%04d-0", i / 10_000, i % 10_000);
+            bookService.createUpdateBook(isbn, BookEntity.builder().title("Title " + i).authorEntity(author).build());
+            uris[i] = URI.create("http://localhost:" + port + "/books/" + isbn);
+        }
+        clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(clientExecutor).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println("rejected responses: " + rejected);
+        clientExecutor.shutdownNow();
+        context.close();
+    }
+
+    @Benchmark
+    public void burst() {
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            cursor = (cursor + 1) % uris.length;
+            HttpRequest request = HttpRequest.newBuilder(uris[cursor]).GET().build();
+            responses[i] = client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .thenAccept(response -> {
+                        if (response.statusCode() != 200) {
+                            synchronized (this) {
+                                rejected++;
+                            }
+                        }
+                    });
+        }
+        CompletableFuture.allOf(responses).join();
+    }
+}
@@ -1,28 +1,77 @@
 package com.example.Library.Controller;
 
 import com.example.Library.Services.AuthorService;
+import com.example.Library.Services.BatchFailedException;
+import com.example.Library.Services.BookService;
 import com.example.Library.domain.DTO.AuthorDTO;
+import com.example.Library.domain.DTO.AuthorVersionDTO;
+import com.example.Library.domain.DTO.BatchResultDTO;
+import com.example.Library.domain.DTO.BookDTO;
+import com.example.Library.domain.DTO.CursorPageDTO;
+import com.example.Library.domain.DTO.MultiGetDTO;
 import com.example.Library.domain.Entities.AuthorEntity;
+import com.example.Library.domain.Entities.BookEntity;
+import com.example.Library.hotkeys.HotKeys;
 import com.example.Library.mappers.Mapper;
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterators;
 import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
 @RestController
 public class AuthorController {
 
+    private static final int MAX_MGET_KEYS = 1000;
+
+    private static final int MAX_CURSOR_PAGE_SIZE = 1000;
+
     private AuthorService authorService;
 
+    private BookService bookService;
+
     private Mapper<AuthorEntity, AuthorDTO> authorMapper;
 
-    public AuthorController(AuthorService authorService, Mapper<AuthorEntity, AuthorDTO> authorMapper) {
+    private Mapper<BookEntity, BookDTO> bookMapper;
+
+    private ObjectMapper objectMapper;
+
+    private NdjsonResponses ndjsonResponses;
+
+    private CursorCodec cursorCodec;
+
+    private HotKeys hotKeys;
+
+    public AuthorController(AuthorService authorService, BookService bookService, Mapper<AuthorEntity, AuthorDTO> authorMapper, Mapper<BookEntity, BookDTO> bookMapper,
+                            ObjectMapper objectMapper, NdjsonResponses ndjsonResponses, CursorCodec cursorCodec, HotKeys hotKeys) {
         this.authorService = authorService;
+        this.bookService = bookService;
         this.authorMapper = authorMapper;
+        this.bookMapper = bookMapper;
+        this.objectMapper = objectMapper;
+        this.ndjsonResponses = ndjsonResponses;
+        this.cursorCodec = cursorCodec;
+        this.hotKeys = hotKeys;
     }
 
     @PostMapping(path = "/authors")
@@ -32,6 +81,23 @@ public class AuthorController {
         return new ResponseEntity<>(authorMapper.mapTo(savedAuthorEntity), HttpStatus.CREATED);
     }
 
+    @PostMapping(path = "/authors/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BatchResultDTO> createAuthors(InputStream body) throws IOException {
+        MappingIterator<AuthorDTO> authorDTOs;
+        try {
+            authorDTOs = objectMapper.readerFor(AuthorDTO.class).readValues(body); //reads the first token already
+        } catch (JacksonException e) {
+            throw new BatchFailedException(new BatchResultDTO(), e);
+        }
+        try (authorDTOs) {
+            BatchResultDTO result = authorService.saveAll(StreamSupport
+                    .stream(Spliterators.spliteratorUnknownSize(authorDTOs, 0), false)
+                    .map(authorMapper::mapFrom)
+                    .iterator());
+            return new ResponseEntity<>(result, HttpStatus.OK); //like /books/batch, the counts are in the body
+        }
+    }
+
     @GetMapping(path = "/authors")
     public List<AuthorDTO> listAuthors() {
         List<AuthorEntity> authors = authorService.findAll();
@@ -40,38 +106,142 @@ public class AuthorController {
                 .collect(Collectors.toList());
     }
 
-    @GetMapping(path = "/authors/{id}")
-    public ResponseEntity<AuthorDTO> getAuthor(@PathVariable("id") Long id) {
-        Optional<AuthorEntity> foundAuthor = authorService.findOne(id);
-        return foundAuthor.map(authorEntity -> {
-            AuthorDTO authorDTO = authorMapper.mapTo(authorEntity);
-            return new ResponseEntity<>(authorDTO, HttpStatus.OK);
-        }).orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    @GetMapping(path = "/authors", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportAuthors() {
+        return ndjsonResponses.stream(rows -> authorService.streamAll(authorEntity -> rows.accept(authorMapper.mapTo(authorEntity))));
     }
 
-    @PutMapping(path = "/authors/{id}")
-    public ResponseEntity<AuthorDTO> fullUpdateAuthor(@PathVariable("id") Long id, @RequestBody AuthorDTO authorDTO) {
+    @GetMapping(path = "/authors/{id}")
+    public ResponseEntity<AuthorDTO> getAuthor(@PathVariable("id") Long id, WebRequest webRequest) {
+        hotKeys.author(id);
+        if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Optional<AuthorVersionDTO> currentVersion = authorService.findVersion(id);
+            if (currentVersion.isPresent() && webRequest.checkNotModified(ETags.of(currentVersion.get()))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(ETags.of(currentVersion.get())).build();
+            }
+        }
+        Optional<AuthorDTO> foundAuthor = authorService.findOneDTO(id);
+        return foundAuthor.map(authorDTO -> ResponseEntity.status(HttpStatus.OK).eTag(ETags.of(authorDTO)).body(authorDTO))
+                .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
 
-        if (!authorService.isExist(id)) {
+    //keyset pages in isbn order; the total comes from the author's maintained book count
+    @GetMapping(path = "/authors/{id}/books")
+    public ResponseEntity<CursorPageDTO<BookDTO>> listAuthorBooks(@PathVariable("id") Long id,
+                                                                 @RequestParam(name = "cursor", defaultValue = "") String cursor,
+                                                                 @RequestParam(name = "size", defaultValue = "20") int size) {
+        hotKeys.author(id);
+        CursorCodec.Cursor decodedCursor;
+        try {
+            decodedCursor = cursorCodec.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        String afterIsbn = null;
+        if (decodedCursor.keys() != null) {
+            Object isbnKey = decodedCursor.keys().get("isbn");
+            if (!"isbn".equals(decodedCursor.sortProperty()) || !(isbnKey instanceof String)) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+            afterIsbn = (String) isbnKey;
+        }
+        if (size < 1) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        Optional<AuthorDTO> author = authorService.findOneDTO(id);
+        if (author.isEmpty()) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
+        int limit = Math.min(size, MAX_CURSOR_PAGE_SIZE);
+        List<BookEntity> books = bookService.findAllByAuthorAfter(id, afterIsbn, limit + 1); //one extra row tells us if there is a next page
+
+        String nextCursor = null;
+        if (books.size() > limit) {
+            books = books.subList(0, limit);
+            nextCursor = cursorCodec.encode("isbn", Map.of("isbn", books.get(limit - 1).getIsbn()));
+        }
+        CursorPageDTO<BookDTO> page = CursorPageDTO.<BookDTO>builder()
+                .content(books.stream().map(bookMapper::mapTo).collect(Collectors.toList()))
+                .nextCursor(nextCursor)
+                .totalElements(author.get().getBookCount().longValue())
+                .build();
+        return new ResponseEntity<>(page, HttpStatus.OK);
+    }
+
+    @PutMapping(path = "/authors/{id}")
+    public ResponseEntity<AuthorDTO> fullUpdateAuthor(@PathVariable("id") Long id,
+                                                      @RequestBody AuthorDTO authorDTO,
+                                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
         authorDTO.setId(id);
         AuthorEntity authorEntity = authorMapper.mapFrom(authorDTO);
-        AuthorEntity savedAuthorEntity = authorService.save(authorEntity);
-        return new ResponseEntity<>(authorMapper.mapTo(savedAuthorEntity), HttpStatus.OK);
+        if (!applyIfMatch(id, ifMatch, authorEntity)) {
+            return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
+        }
+        Optional<AuthorEntity> updatedAuthor;
+        try {
+            updatedAuthor = authorService.fullUpdate(id, authorEntity); //empty when there is no such author
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED); //only a pinned If-Match version fails
+        }
+        return updatedAuthor.map(authorMapper::mapTo)
+                .map(updatedAuthorDTO -> ResponseEntity.status(HttpStatus.OK).eTag(ETags.of(updatedAuthorDTO)).body(updatedAuthorDTO))
+                .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    //one round trip for many authors: cache hits are served as is, the misses take a single IN query
+    @PostMapping(path = "/authors/_mget")
+    public ResponseEntity<MultiGetDTO<AuthorDTO, Long>> getAuthors(@RequestBody List<Long> ids) {
+        Set<Long> keys = ids.stream().filter(Objects::nonNull).collect(Collectors.toCollection(LinkedHashSet::new));
+        if (keys.size() > MAX_MGET_KEYS) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        Map<Long, AuthorDTO> foundAuthors = authorService.findDTOs(keys);
+        MultiGetDTO<AuthorDTO, Long> result = new MultiGetDTO<>(new ArrayList<>(foundAuthors.size()), new ArrayList<>());
+        for (Long id : keys) {
+            hotKeys.author(id);
+            AuthorDTO author = foundAuthors.get(id);
+            if (author != null) {
+                result.getFound().add(author);
+            } else {
+                result.getMissing().add(id);
+            }
+        }
+        return new ResponseEntity<>(result, HttpStatus.OK);
     }
 
     @PatchMapping(path = "/authors/{id}")
-    public ResponseEntity<AuthorDTO> partialUpdate(@PathVariable("id") Long id, @RequestBody AuthorDTO authorDTO) {
+    public ResponseEntity<AuthorDTO> partialUpdate(@PathVariable("id") Long id,
+                                                   @RequestBody AuthorDTO authorDTO,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
-        if (!authorService.isExist(id)) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        AuthorEntity authorEntity = authorMapper.mapFrom(authorDTO);
+        if (!applyIfMatch(id, ifMatch, authorEntity)) {
+            return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
+        }
+        Optional<AuthorEntity> updatedAuthor;
+        try {
+            updatedAuthor = authorService.partialUpdate(id, authorEntity); //empty when there is no such author
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
         }
+        return updatedAuthor.map(authorMapper::mapTo)
+                .map(updatedAuthorDTO -> ResponseEntity.status(HttpStatus.OK).eTag(ETags.of(updatedAuthorDTO)).body(updatedAuthorDTO))
+                .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
 
-        AuthorEntity authorEntity = authorMapper.mapFrom(authorDTO);
-        AuthorEntity updatedAuthor = authorService.partialUpdate(id, authorEntity);
-        return new ResponseEntity<>(authorMapper.mapTo(updatedAuthor), HttpStatus.OK);
+    //the version only comes from If-Match, never from the body. Pinning it makes the write re-check it against the row
+    private boolean applyIfMatch(Long id, String ifMatch, AuthorEntity authorEntity) {
+        authorEntity.setVersion(null);
+        if (ifMatch == null) {
+            return true;
+        }
+        Optional<AuthorVersionDTO> currentVersion = authorService.findVersion(id);
+        if (currentVersion.isEmpty() || !ETags.matches(ifMatch, ETags.of(currentVersion.get()))) {
+            return false;
+        }
+        authorEntity.setVersion(currentVersion.get().version());
+        return true;
     }
 
     @DeleteMapping(path = "/authors/{id}")
@@ -0,0 +1,49 @@
+package com.example.Library.Controller;
+
+import com.example.Library.Services.BatchFailedException;
+import com.example.Library.domain.DTO.BatchResultDTO;
+import com.fasterxml.jackson.core.JacksonException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+//a batch that stopped partway answers with what was committed before it stopped, so the client can resend the rest
+@RestControllerAdvice
+public class BatchFailedAdvice {
+
+    @ExceptionHandler(BatchFailedException.class)
+    public ResponseEntity<BatchResultDTO> batchFailed(BatchFailedException e) {
+        HttpStatus status = status(e.getCause());
+        BatchResultDTO committed = e.getCommitted();
+        committed.setError(status == HttpStatus.INTERNAL_SERVER_ERROR ? status.getReasonPhrase() : e.getMessage());
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(status);
+        if (status == HttpStatus.SERVICE_UNAVAILABLE) {
+            response.header(HttpHeaders.RETRY_AFTER, "1");
+        }
+        return response.body(committed);
+    }
+
+    private static HttpStatus status(Throwable cause) {
+        if (cause instanceof IllegalArgumentException) {
+            return HttpStatus.BAD_REQUEST; //a row that cannot be written
+        }
+        for (Throwable t = cause; t != null; t = t.getCause()) {
+            if (t instanceof JacksonException) {
+                return HttpStatus.BAD_REQUEST;
+            }
+            if (t instanceof OptimisticLockingFailureException) {
+                return HttpStatus.CONFLICT;
+            }
+            if (t instanceof CannotCreateTransactionException || t instanceof DataAccessResourceFailureException || t instanceof QueryTimeoutException) {
+                return HttpStatus.SERVICE_UNAVAILABLE;
+            }
+        }
+        return HttpStatus.INTERNAL_SERVER_ERROR;
+    }
+}
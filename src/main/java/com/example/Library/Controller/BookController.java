@@ -1,70 +1,309 @@
 package com.example.Library.Controller;
 
+import com.example.Library.Services.BatchFailedException;
 import com.example.Library.Services.BookService;
+import com.example.Library.domain.DTO.BatchResultDTO;
 import com.example.Library.domain.DTO.BookDTO;
+import com.example.Library.domain.DTO.BookVersionDTO;
+import com.example.Library.domain.DTO.CursorPageDTO;
+import com.example.Library.domain.DTO.MultiGetDTO;
+import com.example.Library.domain.DTO.SliceDTO;
+import com.example.Library.domain.DTO.UpsertResultDTO;
 import com.example.Library.domain.Entities.BookEntity;
+import com.example.Library.hotkeys.HotKeys;
 import com.example.Library.mappers.Mapper;
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterators;
 import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
 @RestController
 public class BookController {
 
+    private static final Set<String> CURSOR_SORT_KEYS = Set.of("isbn", "title");
+
+    private static final int MAX_CURSOR_PAGE_SIZE = 1000;
+
+    private static final int MAX_SEARCH_LIMIT = 100;
+
+    private static final int MAX_SUGGEST_LIMIT = 10;
+
+    private static final int MAX_MGET_KEYS = 1000;
+
     private Mapper<BookEntity, BookDTO> bookMapper;
 
     private BookService bookService;
 
-    public BookController(Mapper<BookEntity, BookDTO> bookMapper, BookService bookService) {
+    private ObjectMapper objectMapper;
+
+    private NdjsonResponses ndjsonResponses;
+
+    private CursorCodec cursorCodec;
+
+    private HotKeys hotKeys;
+
+    public BookController(Mapper<BookEntity, BookDTO> bookMapper, BookService bookService, ObjectMapper objectMapper, CursorCodec cursorCodec, NdjsonResponses ndjsonResponses,
+                          HotKeys hotKeys) {
         this.bookMapper = bookMapper;
         this.bookService = bookService;
+        this.objectMapper = objectMapper;
+        this.cursorCodec = cursorCodec;
+        this.ndjsonResponses = ndjsonResponses;
+        this.hotKeys = hotKeys;
     }
 
     @PutMapping("/books/{isbn}")
-    public ResponseEntity<BookDTO> createUpdateBook(@PathVariable("isbn") String isbn, @RequestBody BookDTO bookDTO) {
+    public ResponseEntity<BookDTO> createUpdateBook(@PathVariable("isbn") String isbn,
+                                                    @RequestBody BookDTO bookDTO,
+                                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         BookEntity bookEntity = bookMapper.mapFrom(bookDTO); //convert entity to DTO
-        boolean bookExist = bookService.isExist(isbn); //check if it exist using isbn in path
-        BookEntity savedBookEntity = bookService.createUpdateBook(isbn, bookEntity); //either create/update book from bookDTO info provided in body
-        BookDTO savedBookDTO = bookMapper.mapTo(savedBookEntity); //map back to entity
-        if(bookExist) { //do one of these
-            return new ResponseEntity<>(savedBookDTO, HttpStatus.OK);
-        } else {
-            return new ResponseEntity<>(savedBookDTO, HttpStatus.CREATED);
+        bookEntity.setVersion(null); //the version only comes from If-Match, never from the body
+        if (ifMatch != null) {
+            Optional<BookVersionDTO> currentVersion = bookService.findVersion(isbn);
+            if (currentVersion.isEmpty() || !ETags.matches(ifMatch, ETags.of(currentVersion.get()))) {
+                return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
+            }
+            bookEntity.setVersion(currentVersion.get().bookVersion()); //the update re-checks it against the row
+        }
+        UpsertResultDTO<BookEntity> result;
+        try {
+            result = bookService.upsertBook(isbn, bookEntity); //one write that also tells whether the book existed
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
+        }
+        BookDTO savedBookDTO = bookMapper.mapTo(result.entity()); //map back to entity
+        HttpStatus status = result.created() ? HttpStatus.CREATED : HttpStatus.OK;
+        return ResponseEntity.status(status).eTag(ETags.of(savedBookDTO)).body(savedBookDTO);
+    }
+
+    @PostMapping(path = "/books/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BatchResultDTO> createUpdateBooks(InputStream body) throws IOException {
+        //reads a JSON array or NDJSON one book at a time, nothing is buffered beyond the current chunk
+        MappingIterator<BookDTO> bookDTOs;
+        try {
+            bookDTOs = objectMapper.readerFor(BookDTO.class).readValues(body); //reads the first token already
+        } catch (JacksonException e) {
+            throw new BatchFailedException(new BatchResultDTO(), e); //later rows fail inside the service, which wraps them alike
+        }
+        try (bookDTOs) {
+            BatchResultDTO result = bookService.createUpdateBooks(StreamSupport
+                    .stream(Spliterators.spliteratorUnknownSize(bookDTOs, 0), false)
+                    .map(bookMapper::mapFrom)
+                    .iterator());
+            return new ResponseEntity<>(result, HttpStatus.OK);
         }
     }
 
     @GetMapping("/books")
     public Page<BookDTO> listBooks(Pageable pageable) {
-        Page<BookEntity> books = bookService.findAll(pageable);
-        return books.map(bookMapper::mapTo);
+        return bookService.findAllDTOs(pageable); //projected straight to DTOs, books and authors in one select
+    }
+
+    //count=exact|estimated|none picks how totalElements is filled; the page itself never needs a COUNT(*)
+    @GetMapping(path = "/books", params = {"count", "!cursor"})
+    public ResponseEntity<SliceDTO<BookDTO>> listBooksSlice(Pageable pageable, @RequestParam("count") String count) {
+        String countMode = countMode(count);
+        if (countMode == null) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        Slice<BookDTO> slice;
+        Long totalElements;
+        switch (countMode) {
+            case "exact":
+                Page<BookDTO> page = bookService.findAllDTOs(pageable);
+                slice = page;
+                totalElements = page.getTotalElements();
+                break;
+            case "estimated":
+                slice = bookService.findDTOSlice(pageable);
+                totalElements = bookService.estimatedCount();
+                break;
+            default:
+                slice = bookService.findDTOSlice(pageable);
+                totalElements = null;
+        }
+        SliceDTO<BookDTO> body = SliceDTO.<BookDTO>builder()
+                .content(slice.getContent())
+                .number(slice.getNumber())
+                .size(slice.getSize())
+                .hasNext(slice.hasNext())
+                .totalElements(totalElements)
+                .build();
+        return new ResponseEntity<>(body, HttpStatus.OK);
+    }
+
+    //the count modes of the slice and cursor listings, with true and false kept as exact and none; null when unknown
+    private static String countMode(String count) {
+        return switch (count) {
+            case "exact", "true" -> "exact";
+            case "estimated" -> "estimated";
+            case "none", "false" -> "none";
+            default -> null;
+        };
+    }
+
+    @GetMapping(path = "/books", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportBooks() {
+        return ndjsonResponses.stream(rows -> bookService.streamAll(bookEntity -> rows.accept(bookMapper.mapTo(bookEntity))));
+    }
+
+    @GetMapping(path = "/books", params = "cursor")
+    public ResponseEntity<CursorPageDTO<BookDTO>> listBooksByCursor(@RequestParam("cursor") String cursor,
+                                                                    @RequestParam(name = "size", defaultValue = "20") int size,
+                                                                    @RequestParam(name = "sort", defaultValue = "isbn") String sort,
+                                                                    @RequestParam(name = "count", defaultValue = "none") String count) {
+        String countMode = countMode(count);
+        if (countMode == null) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        CursorCodec.Cursor decodedCursor;
+        try {
+            decodedCursor = cursorCodec.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        String sortProperty = decodedCursor.sortProperty() != null ? decodedCursor.sortProperty() : sort; //a token keeps the sort it was issued for
+        if (!CURSOR_SORT_KEYS.contains(sortProperty) || size < 1) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        BookEntity after = null;
+        if (decodedCursor.keys() != null) {
+            Object isbnKey = decodedCursor.keys().get("isbn");
+            Object titleKey = decodedCursor.keys().get("title");
+            if (!(isbnKey instanceof String) || ("title".equals(sortProperty) && !(titleKey instanceof String))) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+            after = BookEntity.builder().isbn((String) isbnKey).title((String) titleKey).build();
+        }
+        int limit = Math.min(size, MAX_CURSOR_PAGE_SIZE);
+        List<BookEntity> books = bookService.findAllAfter(sortProperty, after, limit + 1); //one extra row tells us if there is a next page
+
+        String nextCursor = null;
+        if (books.size() > limit) {
+            books = books.subList(0, limit);
+            BookEntity last = books.get(limit - 1);
+            Map<String, Object> keys = new LinkedHashMap<>();
+            keys.put("isbn", last.getIsbn()); //isbn is the tie breaker for every sort
+            if (!"isbn".equals(sortProperty)) {
+                keys.put("title", last.getTitle());
+            }
+            nextCursor = cursorCodec.encode(sortProperty, keys);
+        }
+        CursorPageDTO<BookDTO> page = CursorPageDTO.<BookDTO>builder()
+                .content(books.stream().map(bookMapper::mapTo).collect(Collectors.toList()))
+                .nextCursor(nextCursor)
+                .totalElements(switch (countMode) {
+                    case "exact" -> bookService.count();
+                    case "estimated" -> bookService.estimatedCount();
+                    default -> null;
+                })
+                .build();
+        return new ResponseEntity<>(page, HttpStatus.OK);
+    }
+
+    //answered from the in-memory index, best match first
+    @GetMapping(path = "/books/search")
+    public ResponseEntity<List<BookDTO>> searchBooks(@RequestParam("q") String query,
+                                                     @RequestParam(name = "limit", defaultValue = "20") int limit) {
+        if (query.isBlank() || limit < 1) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(bookService.search(query, Math.min(limit, MAX_SEARCH_LIMIT)), HttpStatus.OK);
+    }
+
+    //typeahead: distinct titles starting with the prefix, most common first
+    @GetMapping(path = "/books/suggest")
+    public ResponseEntity<List<String>> suggestTitles(@RequestParam("prefix") String prefix,
+                                                      @RequestParam(name = "limit", defaultValue = "10") int limit) {
+        if (limit < 1) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(bookService.suggestTitles(prefix, Math.min(limit, MAX_SUGGEST_LIMIT)), HttpStatus.OK);
     }
 
     @GetMapping("/books/{isbn}")
-    public ResponseEntity<BookDTO> getBook(@PathVariable("isbn") String isbn) {
-        Optional<BookEntity> foundBook = bookService.findOne(isbn);
-        return foundBook.map(bookEntity -> {
-            BookDTO bookDTO = bookMapper.mapTo(bookEntity);
-            return new ResponseEntity<>(bookDTO, HttpStatus.OK);
-        }).orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    public ResponseEntity<BookDTO> getBook(@PathVariable("isbn") String isbn, WebRequest webRequest) {
+        hotKeys.book(isbn); //every read counts, 304s and 404s too
+        if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            //decided from the versions alone, the book is neither loaded nor mapped
+            Optional<BookVersionDTO> currentVersion = bookService.findVersion(isbn);
+            if (currentVersion.isPresent() && webRequest.checkNotModified(ETags.of(currentVersion.get()))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(ETags.of(currentVersion.get())).build();
+            }
+        }
+        Optional<BookDTO> foundBook = bookService.findOneDTO(isbn);
+        return foundBook.map(bookDTO -> ResponseEntity.status(HttpStatus.OK).eTag(ETags.of(bookDTO)).body(bookDTO))
+                .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
-    @PatchMapping("/books/{isbn}")
-    public ResponseEntity<BookDTO> partialUpdateBook(@PathVariable("isbn") String isbn, @RequestBody BookDTO bookDTO) {
-        boolean bookExist = bookService.isExist(isbn); //check if it exists using isbn in path
-        if(!bookExist) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    //one round trip for many books: cache hits are served as is, the misses take a single IN query
+    @PostMapping(path = "/books/_mget")
+    public ResponseEntity<MultiGetDTO<BookDTO, String>> getBooks(@RequestBody List<String> isbns) {
+        Set<String> keys = isbns.stream().filter(Objects::nonNull).collect(Collectors.toCollection(LinkedHashSet::new));
+        if (keys.size() > MAX_MGET_KEYS) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        Map<String, BookDTO> foundBooks = bookService.findDTOs(keys);
+        MultiGetDTO<BookDTO, String> result = new MultiGetDTO<>(new ArrayList<>(foundBooks.size()), new ArrayList<>());
+        for (String isbn : keys) {
+            hotKeys.book(isbn);
+            BookDTO book = foundBooks.get(isbn);
+            if (book != null) {
+                result.getFound().add(book);
+            } else {
+                result.getMissing().add(isbn);
+            }
         }
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
+    @PatchMapping("/books/{isbn}")
+    public ResponseEntity<BookDTO> partialUpdateBook(@PathVariable("isbn") String isbn,
+                                                     @RequestBody BookDTO bookDTO,
+                                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         BookEntity bookEntity = bookMapper.mapFrom(bookDTO); //convert DTO to Entity
-        BookEntity updatedBookEntity = bookService.partialUpdate(isbn, bookEntity);
-        return new ResponseEntity<>(
-                bookMapper.mapTo(updatedBookEntity),
-                HttpStatus.OK);
+        bookEntity.setVersion(null);
+        if (ifMatch != null) {
+            Optional<BookVersionDTO> currentVersion = bookService.findVersion(isbn);
+            if (currentVersion.isEmpty() || !ETags.matches(ifMatch, ETags.of(currentVersion.get()))) {
+                return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
+            }
+            bookEntity.setVersion(currentVersion.get().bookVersion());
+        }
+        Optional<BookEntity> updatedBookEntity;
+        try {
+            updatedBookEntity = bookService.partialUpdate(isbn, bookEntity); //empty when there is no such book
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
+        }
+        return updatedBookEntity.map(bookMapper::mapTo)
+                .map(updatedBookDTO -> ResponseEntity.status(HttpStatus.OK).eTag(ETags.of(updatedBookDTO)).body(updatedBookDTO))
+                .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
     @DeleteMapping("/books/{isbn}")
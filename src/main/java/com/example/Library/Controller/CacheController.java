@@ -0,0 +1,23 @@
+package com.example.Library.Controller;
+
+import com.example.Library.cache.CatalogCache;
+import com.example.Library.domain.DTO.CacheStatsDTO;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+public class CacheController {
+
+    private CatalogCache catalogCache;
+
+    public CacheController(CatalogCache catalogCache) {
+        this.catalogCache = catalogCache;
+    }
+
+    @GetMapping(path = "/caches")
+    public Map<String, CacheStatsDTO> cacheStats() {
+        return catalogCache.stats();
+    }
+}
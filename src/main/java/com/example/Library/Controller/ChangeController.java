@@ -0,0 +1,102 @@
+package com.example.Library.Controller;
+
+import com.example.Library.changes.ChangeLog;
+import com.example.Library.domain.DTO.ChangeEventDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Book and author writes as Server-Sent Events. Event ids are {@code <epoch>-<sequence>}
+ * cursors: a client resumes with {@code Last-Event-ID} (or {@code after} on its first
+ * connect) and without either only gets what is written from now on. A {@code reset}
+ * event means the events after the cursor are gone, because the client fell more than
+ * {@code library.changes.capacity} writes behind or the cursor is from another process:
+ * rescan, then carry on from the reset's id.
+ * <p>
+ * Every subscriber is pumped by its own virtual thread, so a slow client only ever holds
+ * up itself; writers just store into the {@link ChangeLog}.
+ */
+@RestController
+public class ChangeController {
+
+    private static final int SEND_BATCH_SIZE = 256;
+
+    private ChangeLog changeLog;
+
+    private Duration heartbeat;
+
+    public ChangeController(ChangeLog changeLog, @Value("${library.changes.heartbeat:15s}") Duration heartbeat) {
+        this.changeLog = changeLog;
+        this.heartbeat = heartbeat;
+    }
+
+    @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamChanges(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                                    @RequestParam(name = "after", required = false) String after) {
+        String cursor = lastEventId != null ? lastEventId : after; //a reconnect resumes where the stream left off
+        long start;
+        if (cursor == null) {
+            start = changeLog.getLastSequence();
+        } else {
+            int separator = cursor.lastIndexOf('-');
+            try {
+                start = Long.parseLong(cursor.substring(separator + 1));
+            } catch (NumberFormatException e) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+            if (separator < 0 || start < 0) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+            if (!cursor.substring(0, separator).equals(changeLog.getEpoch()) || start > changeLog.getLastSequence()) {
+                start = -1; //not a cursor of this process
+            }
+        }
+
+        SseEmitter emitter = new SseEmitter();
+        AtomicBoolean open = new AtomicBoolean(true); //noticed by the pump at the latest on its next heartbeat
+        emitter.onCompletion(() -> open.set(false));
+        emitter.onTimeout(() -> open.set(false));
+        emitter.onError(error -> open.set(false));
+        long from = start;
+        Thread.ofVirtual().name("changes").start(() -> pump(emitter, from, open));
+        return new ResponseEntity<>(emitter, HttpStatus.OK);
+    }
+
+    private void pump(SseEmitter emitter, long after, AtomicBoolean open) {
+        long cursor = after;
+        try {
+            while (open.get() && !changeLog.isClosed()) {
+                ChangeLog.Batch batch = cursor < 0 ? null : changeLog.readAfter(cursor, SEND_BATCH_SIZE);
+                if (batch == null || batch.overrun()) {
+                    cursor = changeLog.getLastSequence();
+                    emitter.send(SseEmitter.event().id(eventId(cursor)).name("reset").data(""));
+                } else if (!batch.events().isEmpty()) {
+                    for (ChangeEventDTO event : batch.events()) {
+                        emitter.send(SseEmitter.event().id(eventId(event.sequence())).name("change").data(event, MediaType.APPLICATION_JSON));
+                    }
+                    cursor = batch.events().get(batch.events().size() - 1).sequence();
+                } else if (!changeLog.awaitAfter(cursor, heartbeat) && open.get() && !changeLog.isClosed()) {
+                    emitter.send(SseEmitter.event().comment("")); //finds clients that went away without closing
+                }
+            }
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            //the client is gone or the request timed out, it reconnects with Last-Event-ID
+        }
+    }
+
+    private String eventId(long sequence) {
+        return changeLog.getEpoch() + "-" + sequence;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.Library.Controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Turns the keys of the last row on a page plus the sort property into an opaque,
+ * URL safe page token and back. The sort property travels inside the token so a client
+ * cannot change the ordering half way through a scroll.
+ */
+@Component
+public class CursorCodec {
+
+    private static final String SORT_KEY = "s";
+    private static final String KEYS_KEY = "k";
+
+    private ObjectMapper objectMapper;
+
+    public CursorCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public String encode(String sortProperty, Map<String, Object> keys) {
+        Map<String, Object> token = new LinkedHashMap<>();
+        token.put(SORT_KEY, sortProperty);
+        token.put(KEYS_KEY, keys);
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(token));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode cursor", e);
+        }
+    }
+
+    public Cursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return new Cursor(null, null);
+        }
+        try {
+            Map<String, Object> token = objectMapper.readValue(
+                    Base64.getUrlDecoder().decode(cursor.getBytes(StandardCharsets.US_ASCII)),
+                    new TypeReference<Map<String, Object>>() {});
+            @SuppressWarnings("unchecked")
+            Map<String, Object> keys = (Map<String, Object>) token.get(KEYS_KEY);
+            Object sortProperty = token.get(SORT_KEY);
+            if (!(sortProperty instanceof String) || keys == null) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            return new Cursor((String) sortProperty, keys);
+        } catch (IllegalArgumentException | IOException | ClassCastException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+    }
+
+    //keys is null for the first page
+    public record Cursor(String sortProperty, Map<String, Object> keys) {
+    }
+}
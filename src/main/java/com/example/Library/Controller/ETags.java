@@ -0,0 +1,49 @@
+package com.example.Library.Controller;
+
+import com.example.Library.domain.DTO.AuthorDTO;
+import com.example.Library.domain.DTO.AuthorVersionDTO;
+import com.example.Library.domain.DTO.BookDTO;
+import com.example.Library.domain.DTO.BookVersionDTO;
+
+/**
+ * Strong entity tags built from row versions. A book's tag also carries its author's
+ * version because the author is embedded in the book representation. An author's book
+ * count moves with every book written to the author without a new version, so the
+ * author's tag carries it too. Books embed their author without the count, which would
+ * otherwise change the tags of all of the author's other books.
+ */
+final class ETags {
+
+    private ETags() {
+        throw new UnsupportedOperationException("Utility classes cannot be constructed");
+    }
+
+    static String of(BookVersionDTO version) {
+        return version.authorVersion() == null
+                ? "\"" + version.bookVersion() + "\""
+                : "\"" + version.bookVersion() + "." + version.authorVersion() + "\"";
+    }
+
+    static String of(BookDTO book) {
+        return of(new BookVersionDTO(book.getVersion(), book.getAuthorEntity() != null ? book.getAuthorEntity().getVersion() : null));
+    }
+
+    static String of(AuthorVersionDTO version) {
+        return "\"" + version.version() + "." + version.bookCount() + "\"";
+    }
+
+    static String of(AuthorDTO author) {
+        return of(new AuthorVersionDTO(author.getVersion(), author.getBookCount()));
+    }
+
+    //If-Match uses strong comparison, so weak tags never match
+    static boolean matches(String ifMatch, String currentETag) {
+        for (String candidate : ifMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || trimmed.equals(currentETag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
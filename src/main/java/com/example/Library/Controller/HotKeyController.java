@@ -0,0 +1,48 @@
+package com.example.Library.Controller;
+
+import com.example.Library.domain.DTO.HotKeyDTO;
+import com.example.Library.hotkeys.HotKeys;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RestController
+public class HotKeyController {
+
+    private HotKeys hotKeys;
+
+    public HotKeyController(HotKeys hotKeys) {
+        this.hotKeys = hotKeys;
+    }
+
+    //the most read keys of books or authors, most read first
+    @GetMapping(path = "/hot-keys/{resource}")
+    public ResponseEntity<List<HotKeyDTO>> hotKeys(@PathVariable("resource") String resource,
+                                                   @RequestParam(name = "limit", defaultValue = "10") int limit) {
+        if (limit < 1) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        List<HotKeyDTO> top;
+        switch (resource) {
+            case "books":
+                top = hotKeys.topBooks(limit).stream()
+                        .map(hotKey -> new HotKeyDTO(hotKey.key(), hotKey.estimate()))
+                        .collect(Collectors.toList());
+                break;
+            case "authors":
+                top = hotKeys.topAuthors(limit).stream()
+                        .map(hotKey -> new HotKeyDTO(hotKey.key().toString(), hotKey.estimate()))
+                        .collect(Collectors.toList());
+                break;
+            default:
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(top, HttpStatus.OK);
+    }
+}
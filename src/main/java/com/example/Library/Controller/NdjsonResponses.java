@@ -0,0 +1,45 @@
+package com.example.Library.Controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes rows as newline delimited JSON while a producer pushes them, so a response
+ * never holds more than the generator buffer in memory.
+ */
+@Component
+public class NdjsonResponses {
+
+    private ObjectWriter objectWriter;
+
+    public NdjsonResponses(ObjectMapper objectMapper) {
+        //flushing after every row would turn each line into its own socket write
+        this.objectWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    public <T> ResponseEntity<StreamingResponseBody> stream(Consumer<Consumer<T>> producer) {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectWriter.getFactory().createGenerator(outputStream)) {
+                producer.accept(row -> {
+                    try {
+                        objectWriter.writeValue(generator, row);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+}
@@ -1,23 +1,41 @@
 package com.example.Library.Services;
 
 import com.example.Library.domain.DTO.AuthorDTO;
+import com.example.Library.domain.DTO.AuthorVersionDTO;
+import com.example.Library.domain.DTO.BatchResultDTO;
 import com.example.Library.domain.Entities.AuthorEntity;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Component
 public interface AuthorService {
     AuthorEntity save(AuthorEntity authorEntity);
 
+    BatchResultDTO saveAll(Iterator<AuthorEntity> authors);
+
     List<AuthorEntity> findAll();
 
+    void streamAll(Consumer<AuthorEntity> consumer);
+
     Optional<AuthorEntity> findOne(Long id);
 
+    Optional<AuthorDTO> findOneDTO(Long id);
+
+    Map<Long, AuthorDTO> findDTOs(Collection<Long> ids);
+
+    Optional<AuthorVersionDTO> findVersion(Long id);
+
     boolean isExist(Long id);
 
-    AuthorEntity partialUpdate(Long id, AuthorEntity authorEntity);
+    Optional<AuthorEntity> fullUpdate(Long id, AuthorEntity authorEntity);
+
+    Optional<AuthorEntity> partialUpdate(Long id, AuthorEntity authorEntity);
 
     void delete(Long id);
 }
@@ -0,0 +1,22 @@
+package com.example.Library.Services;
+
+import com.example.Library.domain.DTO.BatchResultDTO;
+
+/**
+ * A batch write that stopped partway. Batches are written one chunk per transaction, so
+ * every chunk before the failing one is committed and none of the rest is. The committed
+ * result counts those rows, which are the first {@code created + updated} rows of the input.
+ */
+public class BatchFailedException extends RuntimeException {
+
+    private final BatchResultDTO committed;
+
+    public BatchFailedException(BatchResultDTO committed, Throwable cause) {
+        super(cause.getMessage(), cause);
+        this.committed = committed;
+    }
+
+    public BatchResultDTO getCommitted() {
+        return committed;
+    }
+}
@@ -1,25 +1,62 @@
 package com.example.Library.Services;
 
+import com.example.Library.domain.DTO.BatchResultDTO;
+import com.example.Library.domain.DTO.BookDTO;
+import com.example.Library.domain.DTO.BookVersionDTO;
+import com.example.Library.domain.DTO.UpsertResultDTO;
 import com.example.Library.domain.Entities.BookEntity;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface BookService {
 
     BookEntity createUpdateBook(String isbn, BookEntity book);
 
+    UpsertResultDTO<BookEntity> upsertBook(String isbn, BookEntity book);
+
+    BatchResultDTO createUpdateBooks(Iterator<BookEntity> books);
+
     List<BookEntity> findAll();
 
+    void streamAll(Consumer<BookEntity> consumer);
+
     Page<BookEntity> findAll(Pageable pageable);
 
+    Page<BookDTO> findAllDTOs(Pageable pageable);
+
+    Slice<BookDTO> findDTOSlice(Pageable pageable);
+
+    List<BookEntity> findAllAfter(String sortProperty, BookEntity after, int limit);
+
+    List<BookEntity> findAllByAuthorAfter(Long authorId, String afterIsbn, int limit);
+
+    long count();
+
+    long estimatedCount();
+
     Optional<BookEntity> findOne(String isbn);
 
+    Optional<BookDTO> findOneDTO(String isbn);
+
+    Map<String, BookDTO> findDTOs(Collection<String> isbns);
+
+    Optional<BookVersionDTO> findVersion(String isbn);
+
     boolean isExist(String isbn);
 
-    BookEntity partialUpdate(String isbn, BookEntity bookEntity);
+    Optional<BookEntity> partialUpdate(String isbn, BookEntity bookEntity);
 
     void delete(String isbn);
+
+    List<BookDTO> search(String query, int limit);
+
+    List<String> suggestTitles(String prefix, int limit);
 }
@@ -1,14 +1,40 @@
 package com.example.Library.Services.Impl;
 
 import com.example.Library.Services.AuthorService;
+import com.example.Library.Services.BatchFailedException;
+import com.example.Library.cache.CatalogCache;
+import com.example.Library.cache.ExistenceFilter;
+import com.example.Library.cache.SingleFlight;
+import com.example.Library.changes.ChangeLog;
 import com.example.Library.domain.DTO.AuthorDTO;
+import com.example.Library.domain.DTO.AuthorVersionDTO;
+import com.example.Library.domain.DTO.BatchResultDTO;
 import com.example.Library.domain.Entities.AuthorEntity;
 import com.example.Library.repositories.AuthorRepository;
+import com.example.Library.search.BookSearchIndex;
+import com.example.Library.search.WriteSequences;
+import com.example.Library.snapshot.CatalogSnapshot;
+import com.example.Library.snapshot.CatalogSnapshots;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 @Service
@@ -16,45 +42,254 @@ public class AuthorServiceImpl implements AuthorService {
 
     private AuthorRepository authorRepository;
 
-    public AuthorServiceImpl(AuthorRepository authorRepository) {
+    private EntityManager entityManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private TransactionTemplate readOnlyTransactionTemplate;
+
+    private int batchChunkSize;
+
+    private CatalogCache catalogCache;
+
+    private ExistenceFilter existenceFilter;
+
+    private SingleFlight singleFlight;
+
+    private BookSearchIndex searchIndex;
+
+    private WriteSequences writeSequences;
+
+    private ChangeLog changeLog;
+
+    private CatalogSnapshots snapshots; //null unless library.snapshot.enabled
+
+    public AuthorServiceImpl(AuthorRepository authorRepository,
+                             EntityManager entityManager,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${library.batch.chunk-size:1000}") int batchChunkSize,
+                             CatalogCache catalogCache,
+                             ExistenceFilter existenceFilter,
+                             SingleFlight singleFlight,
+                             BookSearchIndex searchIndex,
+                             WriteSequences writeSequences,
+                             ChangeLog changeLog,
+                             ObjectProvider<CatalogSnapshots> snapshots) {
         this.authorRepository = authorRepository;
+        this.catalogCache = catalogCache;
+        this.existenceFilter = existenceFilter;
+        this.singleFlight = singleFlight;
+        this.searchIndex = searchIndex;
+        this.writeSequences = writeSequences;
+        this.changeLog = changeLog;
+        this.snapshots = snapshots.getIfAvailable();
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.batchChunkSize = batchChunkSize;
     }
 
+    // a known id is overwritten by one native UPDATE, like PUT /authors/{id}; anything else is created
+    // with a generated id. No pre-read, so the book count and version are never taken from a stale copy
     @Override
     public AuthorEntity save(AuthorEntity authorEntity) {
-        return authorRepository.save(authorEntity);
+        authorEntity.setVersion(null); //the version only comes from If-Match, which POST does not take
+        Optional<AuthorEntity> updatedAuthor = authorEntity.getId() != null ? fullUpdate(authorEntity.getId(), authorEntity) : Optional.empty();
+        if (updatedAuthor.isPresent()) {
+            return updatedAuthor.get();
+        }
+        AtomicLong sequence = new AtomicLong();
+        AuthorEntity savedAuthor = transactionTemplate.execute(status -> {
+            authorEntity.setId(null); //unknown id, the author is created with a generated one
+            authorEntity.setBookCount(0);
+            entityManager.persist(authorEntity);
+            existenceFilter.authors().added(authorEntity.getId()); //the sequence assigned it, the insert comes with the commit
+            sequence.set(writeSequences.next()); //the new id is known to no other writer yet
+            return authorEntity;
+        });
+        try {
+            catalogCache.evictAuthor(savedAuthor.getId());
+            searchIndex.putAuthor(savedAuthor, sequence.get());
+            announce(savedAuthor);
+        } finally {
+            writeSequences.completed(sequence.get());
+        }
+        return savedAuthor;
+    }
+
+    @Override
+    public BatchResultDTO saveAll(Iterator<AuthorEntity> authors) {
+        BatchResultDTO result = new BatchResultDTO();
+        List<AuthorEntity> chunk = new ArrayList<>(batchChunkSize);
+        try {
+            while (authors.hasNext()) {
+                chunk.add(authors.next());
+                if (chunk.size() == batchChunkSize) {
+                    writeAuthorChunk(chunk, result);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                writeAuthorChunk(chunk, result);
+            }
+        } catch (RuntimeException e) {
+            throw new BatchFailedException(result, e); //malformed input or a failed chunk, the chunks before it stay
+        }
+        return result;
+    }
+
+    // batch ingestion always creates: ids come from the pooled sequence, so a chunk costs
+    // chunk / allocationSize sequence calls plus batched inserts
+    private void writeAuthorChunk(List<AuthorEntity> chunk, BatchResultDTO result) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (AuthorEntity author : chunk) {
+                author.setId(null);
+                author.setVersion(null);
+                author.setBookCount(0);
+                entityManager.persist(author);
+                existenceFilter.authors().added(author.getId());
+            }
+            entityManager.flush();
+            entityManager.clear();
+        });
+        result.setCreated(result.getCreated() + chunk.size());
+        chunk.forEach(this::announce); //flushed, so ids and versions are set
     }
 
     @Override
     public List<AuthorEntity> findAll() {
+        CatalogSnapshot snapshot = snapshot();
+        if (snapshot != null) {
+            return snapshot.authors();
+        }
+        //managed entities, so not shared with other requests through singleFlight
         return StreamSupport.stream(authorRepository
                 .findAll()
                 .spliterator(), false)
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public void streamAll(Consumer<AuthorEntity> consumer) {
+        readOnlyTransactionTemplate.executeWithoutResult(status -> {
+            try (Stream<AuthorEntity> authors = authorRepository.streamAll()) {
+                authors.forEach(author -> {
+                    consumer.accept(author);
+                    entityManager.detach(author); //keeps the persistence context from growing with the table
+                });
+            }
+        });
+    }
+
     @Override
     public Optional<AuthorEntity> findOne(Long id) {
-        return authorRepository.findById(id);
+        return existenceFilter.authors().lookup(id, authorRepository::findById);
+    }
+
+    @Override
+    public Optional<AuthorDTO> findOneDTO(Long id) {
+        CatalogSnapshot snapshot = snapshot();
+        if (snapshot != null) {
+            return snapshot.findAuthor(id);
+        }
+        return existenceFilter.authors().lookup(id, key -> catalogCache.getAuthor(key, authorRepository::findDTOById));
+    }
+
+    //misses are fetched with one IN query
+    @Override
+    public Map<Long, AuthorDTO> findDTOs(Collection<Long> ids) {
+        CatalogSnapshot snapshot = snapshot();
+        if (snapshot != null) {
+            return snapshot.findAuthors(ids);
+        }
+        List<Long> candidates = ids.stream().filter(existenceFilter.authors()::mightContain).toList();
+        return catalogCache.getAuthors(candidates, misses -> authorRepository.findDTOsByIds(misses).stream()
+                .collect(Collectors.toMap(AuthorDTO::getId, Function.identity())));
+    }
+
+    @Override
+    public Optional<AuthorVersionDTO> findVersion(Long id) {
+        AuthorDTO cachedAuthor = catalogCache.peekAuthor(id);
+        if (cachedAuthor != null) {
+            return Optional.of(new AuthorVersionDTO(cachedAuthor.getVersion(), cachedAuthor.getBookCount()));
+        }
+        //also asked for If-Match before writes, which never go by the existence filter
+        return singleFlight.run("authors.version", id, () -> authorRepository.findVersionById(id));
     }
 
     @Override
     public boolean isExist(Long id) {
-        return authorRepository.existsById(id);
+        return existenceFilter.authors().mightContain(id) && authorRepository.existsById(id); //no write asks it, so it can go by the filter
     }
 
+    // one UPDATE of every field that reads the row back, instead of load, dirty check and merge. Only an
+    // If-Match version pins it
     @Override
-    public AuthorEntity partialUpdate(Long id, AuthorEntity authorEntity) {
-        authorEntity.setId(id);
-        return authorRepository.findById(id).map(existingAuthor -> {
-            Optional.ofNullable(authorEntity.getName()).ifPresent(existingAuthor::setName);
-            Optional.ofNullable(authorEntity.getAge()).ifPresent(existingAuthor::setAge);
-            return authorRepository.save(existingAuthor);
-        }).orElseThrow(() -> new RuntimeException("Author does not exist"));
+    public Optional<AuthorEntity> fullUpdate(Long id, AuthorEntity authorEntity) {
+        Long expectedVersion = authorEntity.getVersion();
+        return update(id, expectedVersion, true, () -> authorRepository.updateIfExists(id, authorEntity.getName(), authorEntity.getAge(), expectedVersion));
+    }
+
+    // one UPDATE of the non-null fields that reads the row back, instead of load, dirty check and merge
+    @Override
+    public Optional<AuthorEntity> partialUpdate(Long id, AuthorEntity authorEntity) {
+        Long expectedVersion = authorEntity.getVersion();
+        boolean writes = authorEntity.getName() != null || authorEntity.getAge() != null;
+        return update(id, expectedVersion, writes, () -> authorRepository.updateNonNull(id, authorEntity.getName(), authorEntity.getAge(), expectedVersion));
+    }
+
+    // empty when there is no such author; a row that is there but moved past the expected version fails the update.
+    // The search index drops it when a later write of the author reached it first, see WriteSequences.
+    // A write with no field set only reads the row, and is not evicted, indexed or announced
+    private Optional<AuthorEntity> update(Long id, Long expectedVersion, boolean writes, Supplier<Optional<AuthorEntity>> write) {
+        AtomicLong sequence = new AtomicLong();
+        Optional<AuthorEntity> updatedAuthor = transactionTemplate.execute(status -> {
+            Optional<AuthorEntity> updated = write.get();
+            if (updated.isEmpty() && expectedVersion != null && authorRepository.existsById(id)) {
+                throw new ObjectOptimisticLockingFailureException(AuthorEntity.class, id);
+            }
+            if (writes) {
+                updated.ifPresent(author -> sequence.set(writeSequences.next())); //the UPDATE locked the row
+            }
+            return updated;
+        });
+        if (!writes) {
+            return updatedAuthor;
+        }
+        try {
+            updatedAuthor.ifPresent(author -> {
+                catalogCache.evictAuthor(id);
+                searchIndex.putAuthor(author, sequence.get());
+                announce(author);
+            });
+        } finally {
+            writeSequences.completed(sequence.get());
+        }
+        return updatedAuthor;
     }
 
     @Override
     public void delete(Long id) {
-        authorRepository.deleteById(id);
+        //what deleteById does, but telling whether there was a row
+        boolean deleted = transactionTemplate.execute(status -> authorRepository.findById(id)
+                .map(author -> {
+                    authorRepository.delete(author);
+                    return true;
+                })
+                .orElse(false));
+        catalogCache.evictAuthor(id);
+        if (deleted) {
+            changeLog.publish(ChangeLog.AUTHOR, id.toString(), ChangeLog.DELETE, null); //only deletes that removed a row are announced
+        }
+    }
+
+    //null without snapshot mode, and before its first load
+    private CatalogSnapshot snapshot() {
+        return snapshots != null ? snapshots.current() : null;
+    }
+
+    private void announce(AuthorEntity author) {
+        changeLog.publish(ChangeLog.AUTHOR, author.getId().toString(), ChangeLog.UPSERT, author.getVersion());
     }
 }
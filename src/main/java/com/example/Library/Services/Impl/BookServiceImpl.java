@@ -1,30 +1,376 @@
 package com.example.Library.Services.Impl;
 
+import com.example.Library.Services.BatchFailedException;
 import com.example.Library.Services.BookService;
+import com.example.Library.cache.CatalogCache;
+import com.example.Library.cache.ExistenceFilter;
+import com.example.Library.cache.SingleFlight;
+import com.example.Library.changes.ChangeLog;
+import com.example.Library.domain.DTO.BatchResultDTO;
+import com.example.Library.domain.DTO.BookDTO;
+import com.example.Library.domain.DTO.BookVersionDTO;
+import com.example.Library.domain.DTO.UpsertResultDTO;
+import com.example.Library.domain.Entities.AuthorEntity;
 import com.example.Library.domain.Entities.BookEntity;
+import com.example.Library.repositories.AuthorRepository;
 import com.example.Library.repositories.BookRepository;
+import com.example.Library.repositories.BookWriteRepository;
+import com.example.Library.search.BookSearchIndex;
+import com.example.Library.search.TitleSuggester;
+import com.example.Library.search.WriteSequences;
+import com.example.Library.snapshot.CatalogSnapshot;
+import com.example.Library.snapshot.CatalogSnapshots;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.List;
-import java.util.Optional;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 @Service
-public class BookServiceImpl implements BookService {
+public class BookServiceImpl implements BookService, SmartInitializingSingleton {
 
     private BookRepository bookRepository;
 
-    public BookServiceImpl(BookRepository bookRepository) {
+    private AuthorRepository authorRepository;
+
+    private EntityManager entityManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private TransactionTemplate readOnlyTransactionTemplate;
+
+    private int batchChunkSize;
+
+    private CatalogCache catalogCache;
+
+    private ExistenceFilter existenceFilter;
+
+    private SingleFlight singleFlight;
+
+    private BookSearchIndex searchIndex;
+
+    private TitleSuggester titleSuggester;
+
+    private WriteSequences writeSequences;
+
+    private ChangeLog changeLog;
+
+    private CatalogSnapshots snapshots; //null unless library.snapshot.enabled
+
+    private Duration estimatedCountRefresh;
+
+    private AtomicReference<TimedCount> estimatedCount = new AtomicReference<>();
+
+    private AtomicBoolean countingBooks = new AtomicBoolean();
+
+    private record TimedCount(long count, long takenAtNanos) {
+    }
+
+    public BookServiceImpl(BookRepository bookRepository,
+                           AuthorRepository authorRepository,
+                           EntityManager entityManager,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${library.batch.chunk-size:1000}") int batchChunkSize,
+                           CatalogCache catalogCache,
+                           ExistenceFilter existenceFilter,
+                           SingleFlight singleFlight,
+                           BookSearchIndex searchIndex,
+                           TitleSuggester titleSuggester,
+                           WriteSequences writeSequences,
+                           ChangeLog changeLog,
+                           ObjectProvider<CatalogSnapshots> snapshots,
+                           @Value("${library.books.estimated-count.refresh:30s}") Duration estimatedCountRefresh) {
         this.bookRepository = bookRepository;
+        this.catalogCache = catalogCache;
+        this.existenceFilter = existenceFilter;
+        this.singleFlight = singleFlight;
+        this.searchIndex = searchIndex;
+        this.titleSuggester = titleSuggester;
+        this.writeSequences = writeSequences;
+        this.changeLog = changeLog;
+        this.snapshots = snapshots.getIfAvailable();
+        this.authorRepository = authorRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.batchChunkSize = batchChunkSize;
+        this.estimatedCountRefresh = estimatedCountRefresh;
+    }
+
+    //runs before the web server starts, so searches never see a half built index. One pass feeds both structures
+    @Override
+    public void afterSingletonsInstantiated() {
+        Map<String, String> titlesByIsbn = new HashMap<>();
+        searchIndex.rebuild(sink -> streamAll(book -> {
+            sink.accept(book);
+            titlesByIsbn.put(book.getIsbn(), book.getTitle());
+        }));
+        titleSuggester.rebuild(titlesByIsbn);
+    }
+
+    //null without snapshot mode, and before its first load
+    private CatalogSnapshot snapshot() {
+        return snapshots != null ? snapshots.current() : null;
+    }
+
+    // taken inside the write's transaction after the statements that locked its rows (the book's and
+    // the authors'), so writers of one book or author take them in commit order; the indexes drop writes
+    // older than the last one they applied, as the writes reach them after commit in any order. Handed
+    // back once every index has the write, see WriteSequences
+    private long writeSequence() {
+        return writeSequences.next();
+    }
+
+    //also announces the write on GET /changes, every committed book write ends here
+    private void indexAfterWrite(BookEntity book, long sequence) {
+        searchIndex.put(book, sequence);
+        titleSuggester.put(book.getIsbn(), book.getTitle(), sequence);
+        changeLog.publish(ChangeLog.BOOK, book.getIsbn(), ChangeLog.UPSERT, book.getVersion());
     }
 
     @Override
     public BookEntity createUpdateBook(String isbn, BookEntity book) {
+        return upsertBook(isbn, book).entity();
+    }
+
+    // native statements instead of merge's select-then-write: the author (if any) is updated in place or
+    // inserted, then the book row is upserted and moved between the authors' book counts in one statement.
+    // A version on the book pins the update (If-Match)
+    @Override
+    public UpsertResultDTO<BookEntity> upsertBook(String isbn, BookEntity book) {
         book.setIsbn(isbn);
-        return bookRepository.save(book);
+        Long expectedVersion = book.getVersion();
+        List<AuthorEntity> recountedAuthors = new ArrayList<>();
+        AtomicLong sequence = new AtomicLong();
+        boolean created = transactionTemplate.execute(status -> {
+            AuthorEntity author = book.getAuthorEntity();
+            if (author != null) {
+                Optional<AuthorEntity> updatedAuthor = author.getId() == null
+                        ? Optional.empty()
+                        : authorRepository.updateIfExists(author.getId(), author.getName(), author.getAge(), null);
+                if (updatedAuthor.isPresent()) {
+                    author = updatedAuthor.get();
+                } else {
+                    author.setId(null); //unknown or missing id, the author is created with a generated one
+                    author.setVersion(null);
+                    author.setBookCount(0);
+                    entityManager.persist(author);
+                    existenceFilter.authors().added(author.getId()); //the sequence assigned it, the insert is not issued yet
+                    entityManager.flush(); //the book row references it
+                    entityManager.detach(author); //only changed by native statements from here on
+                }
+                book.setAuthorEntity(author);
+            }
+            Long authorId = author != null ? author.getId() : null;
+            if (expectedVersion == null) {
+                existenceFilter.books().added(isbn); //before the row can be seen
+            }
+            BookWriteRepository.Upserted upserted = bookRepository.upsert(isbn, book.getTitle(), authorId, expectedVersion)
+                    .orElseThrow(() -> new ObjectOptimisticLockingFailureException(BookEntity.class, isbn));
+            book.setVersion(upserted.version());
+            sequence.set(writeSequence());
+            recountedAuthors.addAll(upserted.recountedAuthors());
+            applyRecounted(List.of(book), recountedAuthors);
+            return upserted.created();
+        });
+        try {
+            evictAfterWrite(book);
+            recountedAuthors.forEach(author -> authorChanged(author, sequence.get()));
+            announceWrittenAuthors(List.of(book), recountedAuthors);
+            indexAfterWrite(book, sequence.get());
+        } finally {
+            writeSequences.completed(sequence.get());
+        }
+        return new UpsertResultDTO<>(book, created);
+    }
+
+    // adjusts the book counts for books written in this transaction, given each book's previous author id
+    // (null for new books or books without one)
+    private List<AuthorEntity> moveBooks(Map<BookEntity, Long> previousAuthorIds) {
+        Map<Long, Integer> deltas = new HashMap<>();
+        previousAuthorIds.forEach((book, previousAuthorId) -> {
+            Long authorId = book.getAuthorEntity() != null ? book.getAuthorEntity().getId() : null;
+            if (!Objects.equals(previousAuthorId, authorId)) {
+                if (previousAuthorId != null) {
+                    deltas.merge(previousAuthorId, -1, Integer::sum);
+                }
+                if (authorId != null) {
+                    deltas.merge(authorId, 1, Integer::sum);
+                }
+            }
+        });
+        deltas.values().removeIf(delta -> delta == 0);
+        List<AuthorEntity> recountedAuthors = authorRepository.addToBookCounts(deltas);
+        applyRecounted(previousAuthorIds.keySet(), recountedAuthors);
+        return recountedAuthors;
+    }
+
+    //the written books get their author's new count
+    private static void applyRecounted(Collection<BookEntity> books, List<AuthorEntity> recountedAuthors) {
+        Map<Long, AuthorEntity> recountedById = recountedAuthors.stream()
+                .collect(Collectors.toMap(AuthorEntity::getId, Function.identity()));
+        for (BookEntity book : books) {
+            AuthorEntity recounted = book.getAuthorEntity() != null ? recountedById.get(book.getAuthorEntity().getId()) : null;
+            if (recounted != null) {
+                book.getAuthorEntity().setBookCount(recounted.getBookCount());
+            }
+        }
+    }
+
+    //a count move leaves the version, and so the author's other books and their ETags, as they are
+    private void authorChanged(AuthorEntity author, long sequence) {
+        catalogCache.evictAuthorEntry(author.getId());
+        searchIndex.putAuthor(author, sequence);
+        changeLog.publish(ChangeLog.AUTHOR, author.getId().toString(), ChangeLog.UPSERT, author.getVersion());
+    }
+
+    //authors written along with their books whose count did not move, authorChanged announced the others
+    private void announceWrittenAuthors(List<BookEntity> books, List<AuthorEntity> recountedAuthors) {
+        Set<Long> announced = recountedAuthors.stream().map(AuthorEntity::getId).collect(Collectors.toCollection(HashSet::new));
+        for (BookEntity book : books) {
+            AuthorEntity author = book.getAuthorEntity();
+            if (author != null && author.getId() != null && announced.add(author.getId())) {
+                changeLog.publish(ChangeLog.AUTHOR, author.getId().toString(), ChangeLog.UPSERT, author.getVersion());
+            }
+        }
+    }
+
+    //the author is written along with the book, so cached copies of it and of its other books may be stale too
+    private void evictAfterWrite(BookEntity book) {
+        catalogCache.evictBook(book.getIsbn());
+        if (book.getAuthorEntity() != null && book.getAuthorEntity().getId() != null) {
+            catalogCache.evictAuthor(book.getAuthorEntity().getId());
+        }
+    }
+
+    @Override
+    public BatchResultDTO createUpdateBooks(Iterator<BookEntity> books) {
+        BatchResultDTO result = new BatchResultDTO();
+        List<BookEntity> chunk = new ArrayList<>(batchChunkSize);
+        int row = 0;
+        try {
+            while (books.hasNext()) {
+                BookEntity book = books.next();
+                row++;
+                if (book.getIsbn() == null || book.getIsbn().isBlank()) {
+                    throw new IllegalArgumentException("Row " + row + " has no isbn");
+                }
+                chunk.add(book);
+                if (chunk.size() == batchChunkSize) {
+                    writeBookChunk(chunk, result);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                writeBookChunk(chunk, result);
+            }
+        } catch (RuntimeException e) {
+            throw new BatchFailedException(result, e); //malformed input or a failed chunk, the chunks before it stay
+        }
+        return result;
+    }
+
+    // one transaction per chunk: a single IN select finds existing books and authors, new books are
+    // persisted instead of merged so Hibernate can batch the inserts, then the context is cleared.
+    // Book counts move in one statement per chunk; the IN select does not lock, but the versioned
+    // books make a concurrent writer of one of them fail the flush instead of skewing a count. That fails
+    // the batch with the chunks before it committed and counted in result; the client resends the rest.
+    // Existing authors are written by the flush with the count they were read with, so they leave the
+    // second-level cache after the commit
+    private void writeBookChunk(List<BookEntity> chunk, BatchResultDTO result) {
+        List<BookEntity> writtenBooks = new ArrayList<>(chunk.size());
+        List<AuthorEntity> recountedAuthors = new ArrayList<>();
+        Set<Long> writtenAuthorIds = new HashSet<>();
+        BatchResultDTO written = new BatchResultDTO(); //added to result once committed
+        long sequence = transactionTemplate.execute(status -> {
+            Map<String, BookEntity> existingBooks = StreamSupport.stream(bookRepository
+                            .findAllById(chunk.stream()
+                                    .map(BookEntity::getIsbn)
+                                    .collect(Collectors.toSet()))
+                            .spliterator(), false)
+                    .collect(Collectors.toMap(BookEntity::getIsbn, Function.identity()));
+            Map<Long, AuthorEntity> existingAuthors = StreamSupport.stream(authorRepository
+                            .findAllById(chunk.stream()
+                                    .map(BookEntity::getAuthorEntity)
+                                    .filter(author -> author != null && author.getId() != null)
+                                    .map(AuthorEntity::getId)
+                                    .collect(Collectors.toSet()))
+                            .spliterator(), false)
+                    .collect(Collectors.toMap(AuthorEntity::getId, Function.identity()));
+            writtenAuthorIds.addAll(existingAuthors.keySet());
+
+            Map<BookEntity, Long> previousAuthorIds = new IdentityHashMap<>(); //books are mutated while in the map
+            for (BookEntity book : chunk) {
+                AuthorEntity author = book.getAuthorEntity();
+                if (author != null && author.getId() != null && existingAuthors.containsKey(author.getId())) {
+                    AuthorEntity existingAuthor = existingAuthors.get(author.getId());
+                    existingAuthor.setName(author.getName());
+                    existingAuthor.setAge(author.getAge());
+                    author = existingAuthor;
+                } else if (author != null) {
+                    author.setId(null); //unknown or missing id, created like PUT /books/{isbn} would
+                    author.setVersion(null);
+                    author.setBookCount(0);
+                    entityManager.persist(author); //what the cascade would do at the flush, but the id is needed now
+                    existenceFilter.authors().added(author.getId());
+                }
+                BookEntity existingBook = existingBooks.get(book.getIsbn());
+                if (existingBook != null) {
+                    //a book repeated within the chunk keeps its first previous author
+                    previousAuthorIds.putIfAbsent(existingBook, existingBook.getAuthorEntity() != null ? existingBook.getAuthorEntity().getId() : null);
+                    existingBook.setTitle(book.getTitle());
+                    existingBook.setAuthorEntity(author);
+                    writtenBooks.add(existingBook);
+                    written.setUpdated(written.getUpdated() + 1);
+                } else {
+                    book.setAuthorEntity(author);
+                    book.setVersion(null);
+                    entityManager.persist(book);
+                    existenceFilter.books().added(book.getIsbn()); //inserted by the flush below
+                    previousAuthorIds.put(book, null);
+                    existingBooks.put(book.getIsbn(), book);
+                    writtenBooks.add(book);
+                    written.setCreated(written.getCreated() + 1);
+                }
+            }
+            entityManager.flush();
+            entityManager.clear();
+            recountedAuthors.addAll(moveBooks(previousAuthorIds));
+            return writeSequence(); //the flush locked the chunk's rows, the recount the authors'
+
+        });
+        result.setCreated(result.getCreated() + written.getCreated());
+        result.setUpdated(result.getUpdated() + written.getUpdated());
+        try {
+            Cache secondLevelCache = entityManager.getEntityManagerFactory().getCache();
+            writtenAuthorIds.forEach(id -> secondLevelCache.evict(AuthorEntity.class, id));
+            chunk.forEach(this::evictAfterWrite);
+            recountedAuthors.forEach(author -> authorChanged(author, sequence));
+            announceWrittenAuthors(writtenBooks, recountedAuthors);
+            writtenBooks.forEach(book -> indexAfterWrite(book, sequence)); //detached by the clear, but flushed so versions are current
+        } finally {
+            writeSequences.completed(sequence);
+        }
     }
 
     @Override
@@ -35,33 +381,217 @@ public class BookServiceImpl implements BookService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public void streamAll(Consumer<BookEntity> consumer) {
+        readOnlyTransactionTemplate.executeWithoutResult(status -> {
+            try (Stream<BookEntity> books = bookRepository.streamAll()) {
+                books.forEach(book -> {
+                    consumer.accept(book);
+                    entityManager.detach(book); //keeps the persistence context from growing with the table
+                });
+            }
+        });
+    }
+
     @Override
     public Page<BookEntity> findAll(Pageable pageable) {
         return bookRepository.findAll(pageable);
     }
 
+    //read-only transactions, so with a replica configured the listings read from it (see ReadWriteRoutingDataSource)
+    @Override
+    public List<BookEntity> findAllAfter(String sortProperty, BookEntity after, int limit) {
+        CatalogSnapshot snapshot = snapshot();
+        if (snapshot != null) {
+            return snapshot.booksAfter(sortProperty, after, limit);
+        }
+        PageRequest limitOnly = PageRequest.of(0, limit);
+        //not coalesced: the entities may still be managed by this request's session (open-in-view) and must not be shared
+        return readOnlyTransactionTemplate.execute(status -> {
+            switch (sortProperty) {
+                case "isbn":
+                    return after == null
+                            ? bookRepository.findFirstByIsbn(limitOnly)
+                            : bookRepository.findNextByIsbn(after.getIsbn(), limitOnly);
+                case "title":
+                    //books without a title are left out of every page, a cursor never has to carry a null title
+                    return after == null
+                            ? bookRepository.findFirstByTitle(limitOnly)
+                            : bookRepository.findNextByTitle(after.getTitle(), after.getIsbn(), limitOnly);
+                default:
+                    throw new IllegalArgumentException("Unsupported keyset sort: " + sortProperty);
+            }
+        });
+    }
+
+    @Override
+    public List<BookEntity> findAllByAuthorAfter(Long authorId, String afterIsbn, int limit) {
+        CatalogSnapshot snapshot = snapshot();
+        if (snapshot != null) {
+            return snapshot.booksByAuthorAfter(authorId, afterIsbn, limit);
+        }
+        PageRequest limitOnly = PageRequest.of(0, limit);
+        return readOnlyTransactionTemplate.execute(status -> afterIsbn == null
+                ? bookRepository.findByAuthorEntityIdOrderByIsbn(authorId, limitOnly)
+                : bookRepository.findByAuthorEntityIdAndIsbnGreaterThanOrderByIsbn(authorId, afterIsbn, limitOnly));
+    }
+
+    @Override
+    public long count() {
+        CatalogSnapshot snapshot = snapshot();
+        return snapshot != null ? snapshot.getBookCount() : singleFlight.run("books.count", null, bookRepository::count);
+    }
+
+    // an exact count at most estimatedCountRefresh old. The one request that finds it stale counts again on its
+    // own thread while the others keep answering with the previous value; only a cold start makes callers wait
+    @Override
+    public long estimatedCount() {
+        TimedCount current = estimatedCount.get();
+        if (current != null && System.nanoTime() - current.takenAtNanos() < estimatedCountRefresh.toNanos()) {
+            return current.count();
+        }
+        boolean claimed = countingBooks.compareAndSet(false, true);
+        if (!claimed && current != null) {
+            return current.count();
+        }
+        try {
+            long count = count();
+            estimatedCount.set(new TimedCount(count, System.nanoTime()));
+            return count;
+        } finally {
+            if (claimed) {
+                countingBooks.set(false);
+            }
+        }
+    }
+
+    @Override
+    public Page<BookDTO> findAllDTOs(Pageable pageable) {
+        CatalogSnapshot snapshot = snapshot();
+        Page<BookDTO> page = snapshot != null ? snapshot.page(pageable) : null; //null for sorts the snapshot has no order for
+        if (page != null) {
+            return page;
+        }
+        return singleFlight.run("books.page", pageable, () -> readOnlyTransactionTemplate.execute(status -> bookRepository.findAllDTOs(pageable)));
+    }
+
+    @Override
+    public Slice<BookDTO> findDTOSlice(Pageable pageable) {
+        CatalogSnapshot snapshot = snapshot();
+        Slice<BookDTO> slice = snapshot != null ? snapshot.slice(pageable) : null;
+        if (slice != null) {
+            return slice;
+        }
+        return singleFlight.run("books.slice", pageable, () -> readOnlyTransactionTemplate.execute(status -> bookRepository.findDTOSlice(pageable)));
+    }
+
     @Override
     public Optional<BookEntity> findOne(String isbn) {
-        return bookRepository.findById(isbn);
+        return existenceFilter.books().lookup(isbn, bookRepository::findById);
+    }
+
+    @Override
+    public Optional<BookDTO> findOneDTO(String isbn) {
+        CatalogSnapshot snapshot = snapshot();
+        if (snapshot != null) {
+            return snapshot.findBook(isbn);
+        }
+        return existenceFilter.books().lookup(isbn, key -> catalogCache.getBook(key, bookRepository::findDTOById));
+    }
+
+    //misses are fetched with one IN query
+    @Override
+    public Map<String, BookDTO> findDTOs(Collection<String> isbns) {
+        CatalogSnapshot snapshot = snapshot();
+        if (snapshot != null) {
+            return snapshot.findBooks(isbns);
+        }
+        List<String> candidates = isbns.stream().filter(existenceFilter.books()::mightContain).toList();
+        return catalogCache.getBooks(candidates, misses -> bookRepository.findDTOsByIds(misses).stream()
+                .collect(Collectors.toMap(BookDTO::getIsbn, Function.identity())));
+    }
+
+    @Override
+    public Optional<BookVersionDTO> findVersion(String isbn) {
+        BookDTO cachedBook = catalogCache.peekBook(isbn); //cached entries are evicted on every write, so their versions are current
+        if (cachedBook != null) {
+            return Optional.of(new BookVersionDTO(cachedBook.getVersion(),
+                    cachedBook.getAuthorEntity() != null ? cachedBook.getAuthorEntity().getVersion() : null));
+        }
+        //also asked for If-Match before writes, which never go by the existence filter
+        return singleFlight.run("books.version", isbn, () -> bookRepository.findVersionById(isbn));
     }
 
     @Override
     public boolean isExist(String isbn) {
-        return bookRepository.existsById(isbn);
+        return existenceFilter.books().mightContain(isbn) && bookRepository.existsById(isbn); //no write asks it, so it can go by the filter
     }
 
+    // one UPDATE of the non-null fields that reads the row back with its author, instead of load, dirty check and merge.
+    // With no field set nothing is written, so the row is only read and nothing is evicted, indexed or announced
     @Override
-    public BookEntity partialUpdate(String isbn, BookEntity bookEntity) {
-        bookEntity.setIsbn(isbn);
-        return bookRepository.findById(isbn).map(existingBook -> {
-            Optional.ofNullable(bookEntity.getTitle()).ifPresent(existingBook::setTitle);
-            return bookRepository.save(existingBook);
-        }).orElseThrow(() -> new RuntimeException("Book does not exist"));
+    public Optional<BookEntity> partialUpdate(String isbn, BookEntity bookEntity) {
+        Long expectedVersion = bookEntity.getVersion();
+        boolean writes = bookEntity.getTitle() != null;
+        AtomicLong sequence = new AtomicLong();
+        Optional<BookEntity> updatedBook = transactionTemplate.execute(status -> {
+            Optional<BookEntity> updated = bookRepository.updateNonNull(isbn, bookEntity.getTitle(), expectedVersion);
+            if (updated.isEmpty() && expectedVersion != null && bookRepository.existsById(isbn)) {
+                throw new ObjectOptimisticLockingFailureException(BookEntity.class, isbn);
+            }
+            if (writes) {
+                updated.ifPresent(book -> sequence.set(writeSequence()));
+            }
+            return updated;
+        });
+        if (!writes) {
+            return updatedBook;
+        }
+        try {
+            updatedBook.ifPresent(book -> {
+                catalogCache.evictBook(isbn);
+                indexAfterWrite(book, sequence.get());
+            });
+        } finally {
+            writeSequences.completed(sequence.get());
+        }
+        return updatedBook;
     }
 
     @Override
     public void delete(String isbn) {
-        bookRepository.deleteById(isbn);
+        List<AuthorEntity> recountedAuthors = new ArrayList<>();
+        AtomicLong sequence = new AtomicLong();
+        boolean deleted = transactionTemplate.execute(status -> bookRepository.deleteReturning(isbn)
+                .map(book -> {
+                    if (book.getAuthorEntity() != null) {
+                        recountedAuthors.addAll(authorRepository.addToBookCounts(Map.of(book.getAuthorEntity().getId(), -1)));
+                    }
+                    sequence.set(writeSequence());
+                    return true;
+                })
+                .orElse(false));
+        try {
+            recountedAuthors.forEach(author -> authorChanged(author, sequence.get()));
+            catalogCache.evictBook(isbn);
+            if (deleted) {
+                searchIndex.remove(isbn, sequence.get()); //leaves a tombstone, a put that committed before cannot bring it back
+                titleSuggester.remove(isbn, sequence.get());
+                changeLog.publish(ChangeLog.BOOK, isbn, ChangeLog.DELETE, null); //only deletes that removed a row are announced
+            }
+        } finally {
+            writeSequences.completed(sequence.get());
+        }
+    }
+
+    @Override
+    public List<BookDTO> search(String query, int limit) {
+        return searchIndex.search(query, limit);
+    }
+
+    @Override
+    public List<String> suggestTitles(String prefix, int limit) {
+        return titleSuggester.suggest(prefix, limit);
     }
 
 }
@@ -0,0 +1,110 @@
+package com.example.Library.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Set membership in a few bits per key. Every key sets the same few bits of one bit array;
+ * {@link #mightContain} is never false for a key that was added, and true for other keys at
+ * about the configured false positive rate while no more than the capacity was added. Past it
+ * the rate keeps rising, see {@link #getExpectedFalsePositiveRate}.
+ * <p>
+ * Keys cannot be removed. A cuckoo filter could remove them, but only the fingerprint of a key
+ * it is known to hold: {@link ExistenceFilter} cannot know that for a deleted row, whose key may
+ * have reached the filter through a rebuild, an add, both or neither, and removing another key's
+ * fingerprint would rule out a row that is there. Deleted keys go with the rebuilds instead.
+ * <p>
+ * The bits are only ever set, so neither adds nor reads lock.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+    private final long capacity;
+    private final LongAdder size = new LongAdder();
+
+    public BloomFilter(long capacity, double falsePositiveRate) {
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1: " + falsePositiveRate);
+        }
+        //the optimal size and hash count for the capacity: m = -n ln p / ln(2)^2, k = m / n ln 2
+        double bitsPerKey = -Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        if (capacity < 1 || capacity * bitsPerKey > (double) Integer.MAX_VALUE * Long.SIZE) {
+            throw new IllegalArgumentException("Unsupported capacity: " + capacity);
+        }
+        int wordCount = (int) Math.ceil(capacity * bitsPerKey / Long.SIZE);
+        words = new AtomicLongArray(wordCount);
+        bits = (long) wordCount * Long.SIZE;
+        hashes = (int) Math.max(1, Math.round(bitsPerKey * Math.log(2)));
+        this.capacity = capacity;
+    }
+
+    //FNV-1a over the chars, then spread so that all 64 bits depend on every char
+    public static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash(hash);
+    }
+
+    //the finalizer of MurmurHash3
+    public static long hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    public boolean mightContain(long hash) {
+        long step = step(hash);
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(hash + i * step, bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void add(long hash) {
+        long step = step(hash);
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(hash + i * step, bits);
+            long mask = 1L << bit;
+            words.getAndAccumulate((int) (bit >>> 6), mask, (word, set) -> word | set);
+        }
+        size.increment();
+    }
+
+    //keys added, counting repeats
+    public long size() {
+        return size.sum();
+    }
+
+    public boolean isOverCapacity() {
+        return size() > capacity;
+    }
+
+    public int getHashes() {
+        return hashes;
+    }
+
+    public long getMemoryBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+
+    //for the keys held now: the chance that each of the key's bits was set by another key
+    public double getExpectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashes * size() / bits), hashes);
+    }
+
+    //the other half of the hash, odd so that the bit positions of one key differ (double hashing)
+    private static long step(long hash) {
+        return Long.rotateLeft(hash, Integer.SIZE) | 1;
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.Library.cache;
+
+import com.example.Library.domain.DTO.AuthorDTO;
+import com.example.Library.domain.DTO.BookDTO;
+import com.example.Library.domain.DTO.CacheStatsDTO;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache in front of the single book and single author lookups.
+ * Caffeine evicts by size with W-TinyLFU and by time since write. Entries are the
+ * DTOs served to clients, never managed entities, and misses are not cached.
+ * <p>
+ * Loads run on the calling thread but outside of the cache's map locks: a loader that
+ * waits for a pooled connection while holding a bin lock can deadlock against request
+ * threads that hold a connection (open-in-view) and wait on eviction. Concurrent misses
+ * on one key still share a single load through the in-flight future, waited on like a
+ * {@link SingleFlight} load.
+ */
+@Component
+public class CatalogCache implements MeterBinder {
+
+    private AsyncCache<String, BookDTO> books;
+
+    private AsyncCache<Long, AuthorDTO> authors;
+
+    private SingleFlight singleFlight;
+
+    public CatalogCache(@Value("${library.cache.books.max-size:10000}") long bookMaxSize,
+                        @Value("${library.cache.books.ttl:10m}") Duration bookTtl,
+                        @Value("${library.cache.authors.max-size:10000}") long authorMaxSize,
+                        @Value("${library.cache.authors.ttl:10m}") Duration authorTtl,
+                        SingleFlight singleFlight) {
+        this.singleFlight = singleFlight;
+        this.books = Caffeine.newBuilder()
+                .maximumSize(bookMaxSize)
+                .expireAfterWrite(bookTtl)
+                .recordStats()
+                .buildAsync();
+        this.authors = Caffeine.newBuilder()
+                .maximumSize(authorMaxSize)
+                .expireAfterWrite(authorTtl)
+                .recordStats()
+                .buildAsync();
+    }
+
+    public Optional<BookDTO> getBook(String isbn, Function<String, Optional<BookDTO>> loader) {
+        return getOrLoad(books, isbn, loader);
+    }
+
+    public Optional<AuthorDTO> getAuthor(Long id, Function<Long, Optional<AuthorDTO>> loader) {
+        return getOrLoad(authors, id, loader);
+    }
+
+    //cached books plus one bulk load for the rest; keys without a book are left out of the result
+    public Map<String, BookDTO> getBooks(Collection<String> isbns, Function<Set<String>, Map<String, BookDTO>> loader) {
+        return getAllOrLoad(books, isbns, loader);
+    }
+
+    public Map<Long, AuthorDTO> getAuthors(Collection<Long> ids, Function<Set<Long>, Map<Long, AuthorDTO>> loader) {
+        return getAllOrLoad(authors, ids, loader);
+    }
+
+    //no loading and no hit/miss accounting, in-flight loads count as absent
+    public BookDTO peekBook(String isbn) {
+        return completedValue(books.asMap().get(isbn));
+    }
+
+    public AuthorDTO peekAuthor(Long id) {
+        return completedValue(authors.asMap().get(id));
+    }
+
+    public void evictBook(String isbn) {
+        books.synchronous().invalidate(isbn);
+    }
+
+    //books embed their author, so they go too. The scan is bounded by the cache size, and only writes to the author itself need it
+    public void evictAuthor(Long id) {
+        authors.synchronous().invalidate(id);
+        books.asMap().values().removeIf(future -> {
+            BookDTO book = completedValue(future);
+            return book == null || (book.getAuthorEntity() != null && id.equals(book.getAuthorEntity().getId()));
+        });
+    }
+
+    //for book count moves: books embed their author without the count, so only the author goes
+    public void evictAuthorEntry(Long id) {
+        authors.synchronous().invalidate(id);
+    }
+
+    private <K, V> Optional<V> getOrLoad(AsyncCache<K, V> cache, K key, Function<K, Optional<V>> loader) {
+        CompletableFuture<V> cached = cache.getIfPresent(key);
+        if (cached == null) {
+            CompletableFuture<V> loading = new CompletableFuture<>();
+            cached = cache.asMap().putIfAbsent(key, loading);
+            if (cached == null) {
+                //a future completed with null is dropped by the cache, so misses are not cached
+                try {
+                    V value = loader.apply(key).orElse(null);
+                    loading.complete(value);
+                    return Optional.ofNullable(value);
+                } catch (RuntimeException | Error e) {
+                    loading.completeExceptionally(e);
+                    throw e;
+                }
+            }
+        }
+        if (!cached.isDone()) {
+            return Optional.ofNullable(singleFlight.join(cached)); //the loading request's value, or the exception it got
+        }
+        try {
+            return Optional.ofNullable(cached.join());
+        } catch (CompletionException e) {
+            //a failed load the cache has not dropped yet, load on our own without caching
+            return loader.apply(key);
+        }
+    }
+
+    // keys this call claims are loaded together and shared through their futures like getOrLoad does. Keys
+    // another request is still loading go into the same bulk load instead of being waited on, so a request
+    // that already holds a connection never blocks on a load that may itself be waiting for one
+    private static <K, V> Map<K, V> getAllOrLoad(AsyncCache<K, V> cache, Collection<K> keys, Function<Set<K>, Map<K, V>> loader) {
+        Map<K, V> values = new HashMap<>();
+        Map<K, CompletableFuture<V>> claimed = new HashMap<>();
+        Set<K> misses = new HashSet<>();
+        for (K key : keys) {
+            CompletableFuture<V> cached = cache.getIfPresent(key);
+            if (cached == null) {
+                CompletableFuture<V> loading = new CompletableFuture<>();
+                cached = cache.asMap().putIfAbsent(key, loading);
+                if (cached == null) {
+                    claimed.put(key, loading);
+                    misses.add(key);
+                    continue;
+                }
+            }
+            V value = completedValue(cached);
+            if (value != null) {
+                values.put(key, value);
+            } else {
+                misses.add(key);
+            }
+        }
+        if (misses.isEmpty()) {
+            return values;
+        }
+        Map<K, V> loaded;
+        try {
+            loaded = loader.apply(misses);
+        } catch (RuntimeException | Error e) {
+            //waiters get the exception, and the next reader of these keys loads again
+            claimed.forEach((key, future) -> {
+                future.completeExceptionally(e);
+                cache.asMap().remove(key, future);
+            });
+            throw e;
+        }
+        claimed.forEach((key, future) -> future.complete(loaded.get(key)));
+        values.putAll(loaded);
+        return values;
+    }
+
+    private static <V> V completedValue(CompletableFuture<V> future) {
+        return future != null && future.isDone() && !future.isCompletedExceptionally() ? future.join() : null;
+    }
+
+    //the same counters as GET /caches, as cache_gets/cache_evictions/cache_size tagged cache=books|authors
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, books, "books");
+        CaffeineCacheMetrics.monitor(registry, authors, "authors");
+    }
+
+    public Map<String, CacheStatsDTO> stats() {
+        Map<String, CacheStatsDTO> stats = new LinkedHashMap<>();
+        stats.put("books", toDTO(books.synchronous().stats(), books.synchronous().estimatedSize()));
+        stats.put("authors", toDTO(authors.synchronous().stats(), authors.synchronous().estimatedSize()));
+        return stats;
+    }
+
+    private CacheStatsDTO toDTO(CacheStats cacheStats, long size) {
+        return CacheStatsDTO.builder()
+                .hitCount(cacheStats.hitCount())
+                .missCount(cacheStats.missCount())
+                .evictionCount(cacheStats.evictionCount())
+                .hitRate(cacheStats.hitRate())
+                .size(size)
+                .build();
+    }
+}
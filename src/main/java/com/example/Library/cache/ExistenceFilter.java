@@ -0,0 +1,273 @@
+package com.example.Library.cache;
+
+import com.example.Library.repositories.AuthorRepository;
+import com.example.Library.repositories.BookRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * {@link BloomFilter}s over every isbn and author id, so reads of keys that are not there
+ * (404s, If-Match checks, multi-gets) answer without a query. Loaded before the web server
+ * starts and rebuilt every {@code library.exists-filter.refresh}: a rebuild streams the keys
+ * into new filters and swaps them in whole, like {@link com.example.Library.snapshot.CatalogSnapshots}.
+ * In between, the services add a key before the insert of its row is issued, so a row written
+ * here is never ruled out. Rows written by other instances or directly in SQL are ruled out
+ * until the next rebuild, which is why the filters are off unless
+ * {@code library.exists-filter.enabled} is set, and why they only ever answer reads: the write
+ * paths always ask the database whether a row exists.
+ * <p>
+ * A key added just before a rebuild read the table may commit after it. The filters a rebuild
+ * replaced are therefore still asked until the one after, which costs a second probe for
+ * absent keys and twice the memory. Keys cannot be removed from a {@link BloomFilter}, a deleted
+ * row stays allowed until it has been gone for two rebuilds.
+ * <p>
+ * Until the first load, or while disabled, every key might exist.
+ */
+@Component
+public class ExistenceFilter implements SmartInitializingSingleton, DisposableBean, MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(ExistenceFilter.class);
+
+    private BookRepository bookRepository;
+
+    private AuthorRepository authorRepository;
+
+    private TransactionTemplate readOnlyTransactionTemplate;
+
+    private Duration refresh;
+
+    private Keys<String> books;
+
+    private Keys<Long> authors;
+
+    private ScheduledExecutorService refresher;
+
+    public ExistenceFilter(BookRepository bookRepository,
+                           AuthorRepository authorRepository,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${library.exists-filter.enabled:false}") boolean enabled,
+                           @Value("${library.exists-filter.refresh:10m}") Duration refresh,
+                           @Value("${library.exists-filter.books.capacity:1000000}") long bookCapacity,
+                           @Value("${library.exists-filter.authors.capacity:100000}") long authorCapacity,
+                           @Value("${library.exists-filter.false-positive-rate:0.001}") double falsePositiveRate) {
+        this.bookRepository = bookRepository;
+        this.authorRepository = authorRepository;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.refresh = refresh;
+        this.books = new Keys<>("books", BloomFilter::hash, enabled ? () -> new BloomFilter(bookCapacity, falsePositiveRate) : null);
+        this.authors = new Keys<>("authors", BloomFilter::hash, enabled ? () -> new BloomFilter(authorCapacity, falsePositiveRate) : null);
+    }
+
+    public Keys<String> books() {
+        return books;
+    }
+
+    public Keys<Long> authors() {
+        return authors;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (books.newFilter == null) {
+            return;
+        }
+        rebuild();
+        refresher = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("exists-filter").daemon().factory());
+        refresher.scheduleWithFixedDelay(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.warn("Existence filter refresh failed, still answering from the one from before", e);
+            }
+        }, refresh.toMillis(), refresh.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    //only the keys are read, one streamed column per table
+    public void rebuild() {
+        if (books.newFilter == null) {
+            return;
+        }
+        BloomFilter nextBooks = books.startRebuild();
+        BloomFilter nextAuthors = authors.startRebuild();
+        try {
+            readOnlyTransactionTemplate.executeWithoutResult(status -> {
+                try (Stream<String> isbns = bookRepository.streamIsbns()) {
+                    isbns.forEach(isbn -> nextBooks.add(BloomFilter.hash(isbn)));
+                }
+                try (Stream<Long> ids = authorRepository.streamIds()) {
+                    ids.forEach(id -> nextAuthors.add(BloomFilter.hash(id)));
+                }
+            });
+        } catch (RuntimeException e) {
+            books.next = null;
+            authors.next = null;
+            throw e;
+        }
+        books.swap(nextBooks);
+        authors.swap(nextAuthors);
+    }
+
+    @Override
+    public void destroy() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        books.bindTo(registry);
+        authors.bindTo(registry);
+    }
+
+    /**
+     * The filter over one table's keys. A key that {@link #mightContain} denies had no row
+     * when the filter was last rebuilt, and was not added here since; one that it allows may
+     * or may not have one.
+     */
+    public static final class Keys<K> {
+
+        private final String name;
+        private final ToLongFunction<K> hash;
+        private final Supplier<BloomFilter> newFilter; //null when disabled
+        private volatile BloomFilter current; //null until the first load
+        private volatile BloomFilter previous; //the one the last rebuild replaced
+        private volatile BloomFilter next; //being rebuilt, gets the added keys too
+        private volatile BloomFilter overCapacityLogged;
+        private final LongAdder absent = new LongAdder();
+        private final LongAdder maybe = new LongAdder();
+        private final LongAdder falsePositives = new LongAdder();
+
+        private Keys(String name, ToLongFunction<K> hash, Supplier<BloomFilter> newFilter) {
+            this.name = name;
+            this.hash = hash;
+            this.newFilter = newFilter;
+        }
+
+        public boolean mightContain(K key) {
+            BloomFilter current = this.current;
+            if (current != null) {
+                long keyHash = hash.applyAsLong(key);
+                BloomFilter previous = this.previous;
+                if (!current.mightContain(keyHash) && (previous == null || !previous.mightContain(keyHash))) {
+                    absent.increment();
+                    return false;
+                }
+            }
+            maybe.increment();
+            return true;
+        }
+
+        //empty without calling lookup when the key is definitely not there
+        public <T> Optional<T> lookup(K key, Function<K, Optional<T>> lookup) {
+            if (!mightContain(key)) {
+                return Optional.empty();
+            }
+            Optional<T> found = lookup.apply(key);
+            if (found.isEmpty()) {
+                falsePositives.increment();
+            }
+            return found;
+        }
+
+        // before the insert of the key's row is issued. Keys a filter already allows are not added to
+        // it again, so rewriting the same row does not count towards its capacity. Whatever previous says: a
+        // rebuild may have read the table before this insert, and current is what the next swap keeps
+        public void added(K key) {
+            long keyHash = hash.applyAsLong(key);
+            BloomFilter next = this.next;
+            if (next != null && !next.mightContain(keyHash)) {
+                next.add(keyHash);
+            }
+            BloomFilter current = this.current;
+            if (current != null && !current.mightContain(keyHash)) {
+                current.add(keyHash);
+                warnIfOverCapacity(current);
+            }
+        }
+
+        private BloomFilter startRebuild() {
+            BloomFilter next = newFilter.get();
+            this.next = next;
+            return next;
+        }
+
+        //previous first, so a reader never sees neither the old nor the new filter
+        private void swap(BloomFilter next) {
+            previous = current;
+            current = next;
+            this.next = null;
+            warnIfOverCapacity(next);
+        }
+
+        private void warnIfOverCapacity(BloomFilter filter) {
+            if (filter.isOverCapacity() && overCapacityLogged != filter) {
+                overCapacityLogged = filter;
+                log.warn("Existence filter for {} is over capacity at {} keys, its false positive rate keeps rising;"
+                        + " raise library.exists-filter.{}.capacity", name, filter.size(), name);
+            }
+        }
+
+        private void bindTo(MeterRegistry registry) {
+            if (newFilter == null) {
+                return;
+            }
+            Gauge.builder("library.exists.filter.keys", this, keys -> keys.current != null ? keys.current.size() : 0)
+                    .description("Keys held by the existence filter")
+                    .tag("filter", name)
+                    .register(registry);
+            Gauge.builder("library.exists.filter.memory", this, Keys::getMemoryBytes)
+                    .description("Heap taken by the existence filter's bits, the replaced filter included")
+                    .baseUnit("bytes")
+                    .tag("filter", name)
+                    .register(registry);
+            Gauge.builder("library.exists.filter.expected.false.positive.rate", this,
+                            keys -> keys.current != null ? keys.current.getExpectedFalsePositiveRate() : 1)
+                    .description("False positive rate expected at the current number of keys")
+                    .tag("filter", name)
+                    .register(registry);
+            FunctionCounter.builder("library.exists.filter.checks", absent, LongAdder::sum)
+                    .description("Existence checks answered without the database")
+                    .tag("filter", name)
+                    .tag("result", "absent")
+                    .register(registry);
+            FunctionCounter.builder("library.exists.filter.checks", maybe, LongAdder::sum)
+                    .description("Existence checks answered by the database")
+                    .tag("filter", name)
+                    .tag("result", "maybe")
+                    .register(registry);
+            FunctionCounter.builder("library.exists.filter.false.positives", falsePositives, LongAdder::sum)
+                    .description("Lookups the filter let through that found nothing")
+                    .tag("filter", name)
+                    .register(registry);
+        }
+
+        private long getMemoryBytes() {
+            BloomFilter current = this.current;
+            BloomFilter previous = this.previous;
+            return (current != null ? current.getMemoryBytes() : 0) + (previous != null ? previous.getMemoryBytes() : 0);
+        }
+    }
+}
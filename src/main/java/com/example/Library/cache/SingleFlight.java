@@ -0,0 +1,112 @@
+package com.example.Library.cache;
+
+import com.example.Library.changes.ChangeLog;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Merges concurrent identical reads into one. The first caller of an operation and argument
+ * runs the load on its own thread; callers arriving while it runs wait for its result, or
+ * get its exception, instead of querying themselves. Nothing is kept once the load returns,
+ * so this only protects the database from stampedes and is no cache. The result is handed to
+ * every waiting thread, so it must be immutable: DTOs, counts and versions, never entities a
+ * request's session may still manage.
+ * <p>
+ * A read only joins a load that started after the same last committed write (the
+ * {@link ChangeLog} sequence), so a client never gets an answer from before its own write.
+ * Waiting is bounded by {@code library.single-flight.timeout}: a waiter may hold a pooled
+ * connection (open-in-view) that the load itself is queued for.
+ */
+@Component
+public class SingleFlight implements MeterBinder {
+
+    private ChangeLog changeLog;
+
+    private Duration timeout;
+
+    private ConcurrentHashMap<Flight, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+
+    private LongAdder led = new LongAdder();
+
+    private LongAdder joined = new LongAdder();
+
+    private LongAdder timedOut = new LongAdder();
+
+    private record Flight(String operation, Object argument, long lastWrite) {
+    }
+
+    public SingleFlight(ChangeLog changeLog, @Value("${library.single-flight.timeout:5s}") Duration timeout) {
+        this.changeLog = changeLog;
+        this.timeout = timeout;
+    }
+
+    //argument must have value equality, and together with operation name everything the load reads
+    @SuppressWarnings("unchecked")
+    public <V> V run(String operation, Object argument, Supplier<V> load) {
+        Flight key = new Flight(operation, argument, changeLog.getLastSequence());
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> running = flights.putIfAbsent(key, flight);
+        if (running != null) {
+            return (V) join(running);
+        }
+        led.increment();
+        try {
+            V value = load.get();
+            flight.complete(value);
+            return value;
+        } catch (Throwable e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    //waits for a load another caller runs, and gets its result or the exception it threw
+    public <V> V join(CompletableFuture<V> flight) {
+        joined.increment();
+        try {
+            return flight.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            timedOut.increment();
+            throw new QueryTimeoutException("Shared load did not finish within " + timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryTimeoutException("Interrupted while waiting for a shared load", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("library.single.flight.loads", led, LongAdder::sum)
+                .description("Reads that ran their own load")
+                .register(registry);
+        FunctionCounter.builder("library.single.flight.joins", joined, LongAdder::sum)
+                .description("Reads that waited for an identical load already running")
+                .register(registry);
+        FunctionCounter.builder("library.single.flight.timeouts", timedOut, LongAdder::sum)
+                .description("Waits given up after library.single-flight.timeout")
+                .register(registry);
+    }
+}
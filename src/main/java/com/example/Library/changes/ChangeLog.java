@@ -0,0 +1,137 @@
+package com.example.Library.changes;
+
+import com.example.Library.domain.DTO.ChangeEventDTO;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The last {@code capacity} book and author writes of this instance, in a ring buffer
+ * indexed by sequence number. A writer claims a sequence with one atomic increment and
+ * stores its event into the slot, so writers never wait for each other or for readers.
+ * Readers go forward from their cursor until they reach a slot that is not stored yet;
+ * a reader that finds a slot already reused by a later sequence has fallen too far
+ * behind and is told to rescan.
+ * <p>
+ * Waiting readers all wait on one latch, which a writer swaps for a fresh one and opens.
+ * Opening it wakes only the first waiter, and every woken waiter wakes the next one, so a
+ * write costs the same however many subscribers are connected.
+ * <p>
+ * Sequences start over on every restart; {@link #getEpoch()} tells cursors of another
+ * process apart.
+ */
+@Component
+public class ChangeLog implements DisposableBean {
+
+    public static final String BOOK = "book";
+    public static final String AUTHOR = "author";
+    public static final String UPSERT = "upsert";
+    public static final String DELETE = "delete";
+
+    public record Batch(List<ChangeEventDTO> events, boolean overrun) {
+    }
+
+    private String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private AtomicReferenceArray<ChangeEventDTO> slots;
+
+    private int mask;
+
+    private AtomicLong lastSequence = new AtomicLong(); //last claimed, its event may not be stored yet
+
+    private AtomicReference<CountDownLatch> signal = new AtomicReference<>(new CountDownLatch(1));
+
+    private volatile boolean closed;
+
+    //rounded up to a power of two
+    public ChangeLog(@Value("${library.changes.capacity:65536}") int capacity) {
+        int size = capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    public void publish(String entity, String id, String type, Long version) {
+        long sequence = lastSequence.incrementAndGet();
+        slots.set(index(sequence), new ChangeEventDTO(sequence, entity, id, type, version));
+        signal.getAndSet(new CountDownLatch(1)).countDown();
+    }
+
+    public String getEpoch() {
+        return epoch;
+    }
+
+    public long getLastSequence() {
+        return lastSequence.get();
+    }
+
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    //up to max events after the given sequence, in order and without gaps
+    public Batch readAfter(long after, int max) {
+        List<ChangeEventDTO> events = new ArrayList<>();
+        for (long sequence = after + 1; events.size() < max; sequence++) {
+            ChangeEventDTO event = slots.get(index(sequence));
+            if (event != null && event.sequence() == sequence) {
+                events.add(event);
+            } else if (event != null && event.sequence() > sequence || lastSequence.get() - sequence >= slots.length()) {
+                return new Batch(List.of(), true); //overwritten, or claimed so long ago its slot has been claimed again
+            } else {
+                break; //not published yet
+            }
+        }
+        return new Batch(events, false);
+    }
+
+    //waits until an event after the given sequence can be read, the timeout passes or the log is closed
+    public boolean awaitAfter(long after, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!closed) {
+            //taken before the check, so a write stored after the check opens this latch or one that replaced it
+            CountDownLatch latch = signal.get();
+            if (readable(after)) {
+                return true;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            try {
+                latch.await(remaining, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private boolean readable(long after) {
+        ChangeEventDTO event = slots.get(index(after + 1));
+        return event != null && event.sequence() >= after + 1 || lastSequence.get() - after > slots.length();
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence & mask);
+    }
+
+    @Override
+    public void destroy() {
+        closed = true;
+        signal.getAndSet(new CountDownLatch(1)).countDown();
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.Library.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnProperty(name = "library.db.bulkhead.enabled", havingValue = "true")
+public class DatabaseBulkheadConfig {
+
+    //static so it is registered before the DataSource bean is created
+    @Bean
+    public static BeanPostProcessor databaseBulkheadPostProcessor(Environment environment) {
+        int maxConcurrent = environment.getProperty("library.db.bulkhead.max-concurrent", Integer.class, 10);
+        Duration maxWait = environment.getProperty("library.db.bulkhead.max-wait", Duration.class, Duration.ofSeconds(2));
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                //the pools are guarded, not the data sources that only delegate or route to them (see ReadReplicaConfig)
+                if (bean instanceof DataSource dataSource && !(bean instanceof DelegatingDataSource) && !(bean instanceof AbstractRoutingDataSource)) {
+                    return new BulkheadDataSource(dataSource, maxConcurrent, maxWait);
+                }
+                return bean;
+            }
+        };
+    }
+}
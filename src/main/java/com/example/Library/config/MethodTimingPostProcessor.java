@@ -0,0 +1,107 @@
+package com.example.Library.config;
+
+import com.example.Library.Services.AuthorService;
+import com.example.Library.Services.BookService;
+import com.example.Library.mappers.Mapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.ClassFilter;
+import org.springframework.aop.MethodMatcher;
+import org.springframework.aop.Pointcut;
+import org.springframework.aop.framework.AbstractAdvisingBeanPostProcessor;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcher;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Times every call into the services ({@code library.service}) and the mappers
+ * ({@code library.mapper}), tagged with the implementation class and method name.
+ * Beans are wrapped in a class proxy so injection by concrete type keeps working; a
+ * bean calling its own methods is only timed once, at the outer call. Timers are
+ * registered on the first call of each method and then found by {@link Method}
+ * without going through the registry.
+ */
+public class MethodTimingPostProcessor extends AbstractAdvisingBeanPostProcessor {
+
+    public static final String SERVICE_TIMER = "library.service";
+    public static final String MAPPER_TIMER = "library.mapper";
+
+    private Supplier<MeterRegistry> meterRegistry;
+
+    private Map<Method, Timer> timers = new ConcurrentHashMap<>();
+
+    //the registry is looked up on the first call, a post processor must not pull it in while beans are still being created
+    public MethodTimingPostProcessor(Supplier<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        MethodInterceptor interceptor = invocation -> {
+            Timer timer = timers.computeIfAbsent(invocation.getMethod(), method -> timer(AopUtils.getTargetClass(invocation.getThis()), method));
+            long start = System.nanoTime();
+            try {
+                return invocation.proceed();
+            } finally {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        };
+        this.advisor = new DefaultPointcutAdvisor(new TimedPointcut(), interceptor);
+        setProxyTargetClass(true);
+        setBeforeExistingAdvisors(true);
+    }
+
+    private Timer timer(Class<?> targetClass, Method method) {
+        return Timer.builder(timerName(targetClass))
+                .tag("class", targetClass.getSimpleName())
+                .tag("method", method.getName())
+                .register(meterRegistry.get());
+    }
+
+    private static String timerName(Class<?> targetClass) {
+        if (Mapper.class.isAssignableFrom(targetClass)) {
+            return MAPPER_TIMER;
+        }
+        if (BookService.class.isAssignableFrom(targetClass) || AuthorService.class.isAssignableFrom(targetClass)) {
+            return SERVICE_TIMER;
+        }
+        return null;
+    }
+
+    //only the Mapper and service interface methods, not lifecycle callbacks like afterSingletonsInstantiated.
+    //Matched by name and arity so the generic Mapper methods match their typed implementations
+    private static boolean isTimedMethod(Method method, Class<?> targetClass) {
+        for (Class<?> timedInterface : List.of(Mapper.class, BookService.class, AuthorService.class)) {
+            if (timedInterface.isAssignableFrom(targetClass)) {
+                for (Method interfaceMethod : timedInterface.getMethods()) {
+                    if (interfaceMethod.getName().equals(method.getName()) && interfaceMethod.getParameterCount() == method.getParameterCount()) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static final class TimedPointcut extends StaticMethodMatcher implements Pointcut {
+
+        @Override
+        public ClassFilter getClassFilter() {
+            return targetClass -> timerName(targetClass) != null;
+        }
+
+        @Override
+        public MethodMatcher getMethodMatcher() {
+            return this;
+        }
+
+        @Override
+        public boolean matches(Method method, Class<?> targetClass) {
+            return isTimedMethod(method, targetClass);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.Library.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Method timers for the services and mappers, and the bulkhead gauges. HTTP timers,
+ * Hikari, Hibernate statistics and the catalog caches are bound by Spring Boot; with
+ * {@code library.metrics.enabled=false} this class is skipped and every other meter
+ * is denied (see application.properties).
+ */
+@Configuration
+@ConditionalOnProperty(name = "library.metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class MetricsConfig {
+
+    //static so it is registered before the services and mappers are created
+    @Bean
+    public static BeanPostProcessor methodTimingPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new MethodTimingPostProcessor(meterRegistry::getObject);
+    }
+
+    //with virtual threads callers queue on the bulkhead rather than in Hikari, so its queue is the saturation signal
+    @Bean
+    public MeterBinder databaseBulkheadMetrics(Map<String, DataSource> dataSources) {
+        return registry -> dataSources.forEach((name, dataSource) -> {
+            if (dataSource instanceof BulkheadDataSource bulkhead) {
+                Gauge.builder("library.db.bulkhead.available", bulkhead, BulkheadDataSource::getAvailablePermits)
+                        .description("Connection checkouts that can start without waiting")
+                        .tag("data.source", name)
+                        .register(registry);
+                Gauge.builder("library.db.bulkhead.queued", bulkhead, BulkheadDataSource::getQueueLength)
+                        .description("Threads waiting for a connection checkout")
+                        .tag("data.source", name)
+                        .register(registry);
+            }
+        });
+    }
+
+    @Bean
+    public MeterBinder replicaLagMetrics(ObjectProvider<ReadWriteRoutingDataSource> routingDataSource) {
+        return registry -> routingDataSource.ifAvailable(routing ->
+                Gauge.builder("library.db.replica.lag", routing, ReadWriteRoutingDataSource::getLagSeconds)
+                        .description("Replica replay lag, -1 while it cannot be read")
+                        .baseUnit("seconds")
+                        .register(registry));
+    }
+}
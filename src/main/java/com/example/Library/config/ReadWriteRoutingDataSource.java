@@ -0,0 +1,126 @@
+package com.example.Library.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands out replica connections to read-only transactions and primary connections to
+ * everything else, including reads outside a transaction (cache fills, conditional
+ * request checks), so a lagging replica never ends up in the caches. Must sit behind a
+ * {@link LazyConnectionDataSourceProxy}: a transaction is only marked read-only after
+ * it asked for its connection, the proxy defers the lookup to the first statement.
+ * <p>
+ * The replica lag is polled every {@code lagCheckInterval}; while it is above
+ * {@code maxLag} or cannot be read, reads go to the primary. Once a request has run a
+ * read-write transaction, the rest of that request reads from the primary as well.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    enum Target {
+        PRIMARY, REPLICA
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    private static final String WROTE_ATTRIBUTE = ReadWriteRoutingDataSource.class.getName() + ".WROTE";
+
+    private DataSource replica;
+
+    private String lagQuery;
+
+    private Duration maxLag;
+
+    private Duration lagCheckInterval;
+
+    private volatile Duration lag; //null while unknown or unreachable
+
+    private ScheduledExecutorService lagChecker;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, String lagQuery, Duration maxLag, Duration lagCheckInterval) {
+        this.replica = replica;
+        this.lagQuery = lagQuery;
+        this.maxLag = maxLag;
+        this.lagCheckInterval = lagCheckInterval;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        checkLag();
+        lagChecker = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("replica-lag").daemon().factory());
+        lagChecker.scheduleWithFixedDelay(this::checkLag, lagCheckInterval.toMillis(), lagCheckInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        lagChecker.shutdownNow();
+    }
+
+    @Override
+    protected Target determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                markRequestWrote();
+            }
+            return Target.PRIMARY;
+        }
+        return requestWrote() || !isReplicaUsable() ? Target.PRIMARY : Target.REPLICA;
+    }
+
+    public boolean isReplicaUsable() {
+        Duration currentLag = lag;
+        return currentLag != null && currentLag.compareTo(maxLag) <= 0;
+    }
+
+    //-1 while the lag is unknown
+    public double getLagSeconds() {
+        Duration currentLag = lag;
+        return currentLag != null ? currentLag.toNanos() / 1e9 : -1;
+    }
+
+    //a null lag (nothing replayed yet, or not a standby) counts as none
+    void checkLag() {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(lagQuery)) {
+            double seconds = resultSet.next() ? resultSet.getDouble(1) : 0;
+            lag = Duration.ofNanos(Math.round(seconds * 1e9));
+        } catch (SQLException | RuntimeException e) {
+            if (lag != null) {
+                log.warn("Reading from the primary, the replica lag cannot be read", e);
+            }
+            lag = null;
+        }
+    }
+
+    private static void markRequestWrote() {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null) {
+            request.setAttribute(WROTE_ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    private static boolean requestWrote() {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        return request != null && request.getAttribute(WROTE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null;
+    }
+}
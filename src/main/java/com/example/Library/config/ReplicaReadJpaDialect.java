@@ -0,0 +1,45 @@
+package com.example.Library.config;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+
+import java.sql.SQLException;
+
+/**
+ * Read-only transactions may run on the replica, so they read the second-level and query
+ * caches but never fill them: a row loaded from a lagging replica right after a native
+ * write evicted it would otherwise sit in the cache until its TTL.
+ */
+public class ReplicaReadJpaDialect extends HibernateJpaDialect {
+
+    private record ReadOnlyTransactionData(Object transactionData, Session session, CacheMode previousCacheMode) {
+    }
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws PersistenceException, SQLException, TransactionException {
+        Object transactionData = super.beginTransaction(entityManager, definition);
+        if (!definition.isReadOnly()) {
+            return transactionData;
+        }
+        Session session = entityManager.unwrap(Session.class);
+        CacheMode previousCacheMode = session.getCacheMode();
+        session.setCacheMode(CacheMode.GET);
+        return new ReadOnlyTransactionData(transactionData, session, previousCacheMode);
+    }
+
+    @Override
+    public void cleanupTransaction(Object transactionData) {
+        if (transactionData instanceof ReadOnlyTransactionData readOnly) {
+            readOnly.session().setCacheMode(readOnly.previousCacheMode());
+            super.cleanupTransaction(readOnly.transactionData());
+        } else {
+            super.cleanupTransaction(transactionData);
+        }
+    }
+}
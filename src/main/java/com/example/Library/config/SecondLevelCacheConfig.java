@@ -0,0 +1,63 @@
+package com.example.Library.config;
+
+import com.example.Library.domain.Entities.AuthorEntity;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Hibernate's second-level and query cache on Caffeine behind JCache. Every region is
+ * created here from {@code library.cache.l2.*}; Hibernate is told to fail instead of
+ * creating a region nobody sized. Native writes go around Hibernate's own invalidation,
+ * the write repositories evict what they touch (see {@code ReturningDml.evictWritten}).
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.jpa.properties.hibernate.cache.use_second_level_cache", havingValue = "true")
+public class SecondLevelCacheConfig {
+
+    @Bean
+    public CacheManager secondLevelCacheManager(@Value("${library.cache.l2.authors.max-size:10000}") long authorMaxSize,
+                                                @Value("${library.cache.l2.authors.ttl:10m}") Duration authorTtl,
+                                                @Value("${library.cache.l2.queries.max-size:1000}") long queryMaxSize,
+                                                @Value("${library.cache.l2.queries.ttl:10m}") Duration queryTtl) {
+        //a URI of its own, contexts living side by side in one JVM (tests, benchmarks) must not share regions
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("library-l2:" + UUID.randomUUID()), getClass().getClassLoader());
+        cacheManager.createCache(AuthorEntity.CACHE_REGION, region(authorMaxSize, authorTtl));
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, region(queryMaxSize, queryTtl));
+        //one entry per table and never evicted: a lost timestamp makes Hibernate trust stale query results
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                new CaffeineConfiguration<>().setStoreByValue(false));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager secondLevelCacheManager) {
+        return properties -> {
+            properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    //Hibernate stores its own immutable entries, so no copy on the way in or out
+    private static CaffeineConfiguration<Object, Object> region(long maxSize, Duration ttl) {
+        return new CaffeineConfiguration<>()
+                .setStoreByValue(false)
+                .setStatisticsEnabled(true)
+                .setMaximumSize(OptionalLong.of(maxSize))
+                .setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+    }
+}
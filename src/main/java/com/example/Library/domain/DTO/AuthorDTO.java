@@ -1,5 +1,6 @@
 package com.example.Library.domain.DTO;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -15,4 +16,9 @@ public class AuthorDTO {
     private String name;
 
     private Integer age;
+
+    private Long version;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer bookCount; //read only, maintained on book writes without moving the version. Null inside a book, see ETags
 }
@@ -0,0 +1,5 @@
+package com.example.Library.domain.DTO;
+
+//the book count is part of an author's representation but moves without the version, so both decide whether it changed
+public record AuthorVersionDTO(Long version, Integer bookCount) {
+}
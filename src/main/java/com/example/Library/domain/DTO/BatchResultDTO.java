@@ -0,0 +1,19 @@
+package com.example.Library.domain.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BatchResultDTO {
+
+    private int created;
+
+    private int updated;
+
+    private String error; //null unless the batch stopped partway, the counts are what was committed before
+}
@@ -21,4 +21,16 @@ public class BookDTO {
     private String title;
 
     private AuthorDTO authorEntity;
+
+    private Long version;
+
+    //target of the JPQL constructor projections in BookRepository, which cannot build the nested author themselves
+    public BookDTO(String isbn, String title, Long version, Long authorId, String authorName, Integer authorAge, Long authorVersion) {
+        this.isbn = isbn;
+        this.title = title;
+        this.version = version;
+        if (authorId != null) {
+            this.authorEntity = new AuthorDTO(authorId, authorName, authorAge, authorVersion, null); //without the book count, see ETags
+        }
+    }
 }
@@ -0,0 +1,5 @@
+package com.example.Library.domain.DTO;
+
+//a book's representation also embeds its author, so both versions decide whether it changed
+public record BookVersionDTO(Long bookVersion, Long authorVersion) {
+}
@@ -0,0 +1,23 @@
+package com.example.Library.domain.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CacheStatsDTO {
+
+    private long hitCount;
+
+    private long missCount;
+
+    private long evictionCount;
+
+    private double hitRate;
+
+    private long size;
+}
@@ -0,0 +1,5 @@
+package com.example.Library.domain.DTO;
+
+//what changed, not the new state: consumers fetch the row, or drop it on a delete. entity is book|author, type upsert|delete
+public record ChangeEventDTO(long sequence, String entity, String id, String type, Long version) {
+}
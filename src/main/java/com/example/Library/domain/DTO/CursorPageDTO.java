@@ -0,0 +1,21 @@
+package com.example.Library.domain.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CursorPageDTO<T> {
+
+    private List<T> content;
+
+    private String nextCursor; //null on the last page
+
+    private Long totalElements; //only filled when the client asks for count=true
+}
@@ -0,0 +1,5 @@
+package com.example.Library.domain.DTO;
+
+//count is an estimate of the recent reads: never low, and decayed by half every library.hot-keys.half-life
+public record HotKeyDTO(String key, long count) {
+}
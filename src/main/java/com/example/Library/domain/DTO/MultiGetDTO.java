@@ -0,0 +1,19 @@
+package com.example.Library.domain.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class MultiGetDTO<T, K> {
+
+    private List<T> found; //in request order, duplicates removed
+
+    private List<K> missing;
+}
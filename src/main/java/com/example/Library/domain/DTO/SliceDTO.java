@@ -0,0 +1,25 @@
+package com.example.Library.domain.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class SliceDTO<T> {
+
+    private List<T> content;
+
+    private int number;
+
+    private int size;
+
+    private boolean hasNext; //from one extra row, not from a count
+
+    private Long totalElements; //exact or estimated as the client asked with count=, null for count=none
+}
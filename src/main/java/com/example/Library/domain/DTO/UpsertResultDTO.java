@@ -0,0 +1,5 @@
+package com.example.Library.domain.DTO;
+
+//lets PUT answer 201 or 200 from the write itself instead of a separate exists check
+public record UpsertResultDTO<T>(T entity, boolean created) {
+}
@@ -5,6 +5,9 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 
 @Data
 @AllArgsConstructor
@@ -12,13 +15,29 @@ import lombok.NoArgsConstructor;
 @Builder
 @Entity
 @Table(name="authors")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = AuthorEntity.CACHE_REGION) //every eager author of a book load
 public class AuthorEntity {
 
+    public static final String CACHE_REGION = "authors";
+
     @Id
     @GeneratedValue(strategy= GenerationType.SEQUENCE, generator="author_id_seq")
+    @SequenceGenerator(name="author_id_seq", sequenceName="authors_id_seq", allocationSize=50)
     private Long id;
 
     private String name;
 
     private Integer age;
+
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
+    //kept in step by the book writes in SQL (see BookServiceImpl) without moving the version, JPA never
+    //writes it. It is cached as held in memory though, so authors updated through JPA are evicted after commit
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private Integer bookCount;
 }
@@ -5,13 +5,17 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 @Entity
-@Table(name="books")
+@Table(name="books", indexes = {
+        @Index(name="books_title_isbn_idx", columnList="title, isbn"), //backs keyset paging by title
+        @Index(name="books_author_id_isbn_idx", columnList="author_id, isbn") //an author's books in isbn order, and the foreign key
+})
 public class BookEntity {
 
     @Id
@@ -23,4 +27,9 @@ public class BookEntity {
     @JoinColumn(name="author_id")
     private AuthorEntity authorEntity;
 
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
 }
@@ -0,0 +1,65 @@
+package com.example.Library.hotkeys;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Approximate counts in fixed memory: every key increments one counter in each of four
+ * rows, and its count is the smallest of them. Estimates are never low, and too high by
+ * more than {@code e / width} of all counts only with probability {@code e^-4} (about 2%).
+ * <p>
+ * Counters are atomic, so concurrent adds are neither lost nor locked. {@link #halve}
+ * ages every count at once.
+ */
+public class CountMinSketch {
+
+    private static final int DEPTH = 4;
+
+    private final AtomicLongArray counters;
+    private final int width;
+    private final int mask;
+
+    public CountMinSketch(int width) {
+        if (width < 1 || width > (1 << 26)) {
+            throw new IllegalArgumentException("Unsupported width: " + width);
+        }
+        this.width = width == 1 ? 1 : Integer.highestOneBit(width - 1) << 1; //rounded up to a power of two
+        this.mask = this.width - 1;
+        this.counters = new AtomicLongArray(DEPTH * this.width);
+    }
+
+    //adds one and returns the key's new estimate
+    public long add(long hash) {
+        int first = (int) hash;
+        int step = (int) (hash >>> 32) | 1; //never 0, which would give a key the same column in every row
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters.incrementAndGet(row * width + ((first + row * step) & mask)));
+        }
+        return estimate;
+    }
+
+    public long estimate(long hash) {
+        int first = (int) hash;
+        int step = (int) (hash >>> 32) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters.get(row * width + ((first + row * step) & mask)));
+        }
+        return estimate;
+    }
+
+    //an add racing with this may be halved or not, either is within the estimate's error
+    public void halve() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.getAndUpdate(i, count -> count >>> 1);
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public long getMemoryBytes() {
+        return (long) counters.length() * Long.BYTES;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.Library.hotkeys;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * The most requested keys of one resource. Every request adds to a {@link CountMinSketch};
+ * keys whose estimate beats the weakest of the current top keys become candidates, and the
+ * candidates are cut back to the top {@code k} by a min-heap once there are twice as many.
+ * A key already among the candidates costs one map lookup, any other key below the bar
+ * costs nothing beyond the sketch.
+ */
+public class HotKeyTracker<K> {
+
+    private final ToLongFunction<K> hash;
+    private final CountMinSketch sketch;
+    private final int k;
+    private final Map<K, Boolean> candidates = new ConcurrentHashMap<>();
+    private volatile long threshold; //the estimate a new key has to beat, 0 until the first trim
+
+    public record HotKey<K>(K key, long estimate) {
+    }
+
+    public HotKeyTracker(ToLongFunction<K> hash, int width, int k) {
+        this.hash = hash;
+        this.sketch = new CountMinSketch(width);
+        this.k = k;
+    }
+
+    public void record(K key) {
+        long estimate = sketch.add(hash.applyAsLong(key));
+        if (estimate > threshold && !candidates.containsKey(key)) {
+            admit(key);
+        }
+    }
+
+    //most requested first, at most k
+    public List<HotKey<K>> top(int limit) {
+        List<HotKey<K>> top = new ArrayList<>(candidates.size());
+        for (K key : candidates.keySet()) {
+            top.add(new HotKey<>(key, sketch.estimate(hash.applyAsLong(key))));
+        }
+        top.sort(Comparator.comparingLong(HotKey<K>::estimate).reversed());
+        return top.subList(0, Math.min(Math.min(limit, k), top.size()));
+    }
+
+    //halves every count, so a request weighs half as much with every call
+    public synchronized void decay() {
+        sketch.halve();
+        threshold >>>= 1;
+    }
+
+    public long getMemoryBytes() {
+        return sketch.getMemoryBytes();
+    }
+
+    private synchronized void admit(K key) {
+        candidates.put(key, Boolean.TRUE);
+        if (candidates.size() < 2 * k) {
+            return;
+        }
+        PriorityQueue<HotKey<K>> kept = new PriorityQueue<>(k + 1, Comparator.comparingLong(HotKey<K>::estimate));
+        for (K candidate : candidates.keySet()) {
+            kept.add(new HotKey<>(candidate, sketch.estimate(hash.applyAsLong(candidate))));
+            if (kept.size() > k) {
+                candidates.remove(kept.poll().key());
+            }
+        }
+        threshold = kept.peek().estimate();
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.Library.hotkeys;
+
+import com.example.Library.cache.BloomFilter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The most read books and authors, counted by the controllers on every read by key. Counts
+ * are halved every {@code library.hot-keys.half-life}, so the top keys are the ones read
+ * most lately rather than since startup. With {@code library.hot-keys.enabled=false}
+ * nothing is counted and the lists stay empty.
+ */
+@Component
+public class HotKeys implements SmartInitializingSingleton, DisposableBean, MeterBinder {
+
+    private HotKeyTracker<String> books;
+
+    private HotKeyTracker<Long> authors;
+
+    private Duration halfLife;
+
+    private ScheduledExecutorService decayer;
+
+    public HotKeys(@Value("${library.hot-keys.enabled:true}") boolean enabled,
+                   @Value("${library.hot-keys.width:16384}") int width,
+                   @Value("${library.hot-keys.top-k:100}") int topK,
+                   @Value("${library.hot-keys.half-life:1m}") Duration halfLife) {
+        if (enabled) {
+            this.books = new HotKeyTracker<>(BloomFilter::hash, width, topK);
+            this.authors = new HotKeyTracker<>(BloomFilter::hash, width, topK);
+        }
+        this.halfLife = halfLife;
+    }
+
+    public void book(String isbn) {
+        if (books != null) {
+            books.record(isbn);
+        }
+    }
+
+    public void author(Long id) {
+        if (authors != null) {
+            authors.record(id);
+        }
+    }
+
+    public List<HotKeyTracker.HotKey<String>> topBooks(int limit) {
+        return books != null ? books.top(limit) : List.of();
+    }
+
+    public List<HotKeyTracker.HotKey<Long>> topAuthors(int limit) {
+        return authors != null ? authors.top(limit) : List.of();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (books == null) {
+            return;
+        }
+        decayer = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("hot-keys-decay").daemon().factory());
+        decayer.scheduleAtFixedRate(() -> {
+            books.decay();
+            authors.decay();
+        }, halfLife.toMillis(), halfLife.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        if (decayer != null) {
+            decayer.shutdownNow();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (books == null) {
+            return;
+        }
+        Gauge.builder("library.hot.keys.size", this, hotKeys -> hotKeys.books.getMemoryBytes() + hotKeys.authors.getMemoryBytes())
+                .description("Heap held by the hot key sketches")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+}
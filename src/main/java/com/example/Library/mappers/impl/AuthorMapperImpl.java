@@ -3,25 +3,39 @@ package com.example.Library.mappers.impl;
 import com.example.Library.domain.DTO.AuthorDTO;
 import com.example.Library.domain.Entities.AuthorEntity;
 import com.example.Library.mappers.Mapper;
-import org.modelmapper.ModelMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+//plain getters and setters, no reflection per call. library.mapper.engine=modelmapper switches to AuthorModelMapperImpl
 @Component
+@ConditionalOnProperty(name = "library.mapper.engine", havingValue = "direct", matchIfMissing = true)
 public class AuthorMapperImpl implements Mapper<AuthorEntity, AuthorDTO> {
 
-    private ModelMapper modelMapper;
-
-    public AuthorMapperImpl(ModelMapper modelMapper) {
-        this.modelMapper = modelMapper;
-    }
-
     @Override
     public AuthorDTO mapTo(AuthorEntity authorEntity) {
-        return modelMapper.map(authorEntity, AuthorDTO.class);
+        if (authorEntity == null) {
+            return null;
+        }
+        AuthorDTO authorDTO = new AuthorDTO();
+        authorDTO.setId(authorEntity.getId());
+        authorDTO.setName(authorEntity.getName());
+        authorDTO.setAge(authorEntity.getAge());
+        authorDTO.setVersion(authorEntity.getVersion());
+        authorDTO.setBookCount(authorEntity.getBookCount());
+        return authorDTO;
     }
 
     @Override
     public AuthorEntity mapFrom(AuthorDTO authorDTO) {
-        return modelMapper.map(authorDTO, AuthorEntity.class);
+        if (authorDTO == null) {
+            return null;
+        }
+        AuthorEntity authorEntity = new AuthorEntity();
+        authorEntity.setId(authorDTO.getId());
+        authorEntity.setName(authorDTO.getName());
+        authorEntity.setAge(authorDTO.getAge());
+        authorEntity.setVersion(authorDTO.getVersion());
+        //bookCount is never taken from a request
+        return authorEntity;
     }
 }
@@ -0,0 +1,29 @@
+package com.example.Library.mappers.impl;
+
+import com.example.Library.domain.DTO.AuthorDTO;
+import com.example.Library.domain.Entities.AuthorEntity;
+import com.example.Library.mappers.Mapper;
+import org.modelmapper.ModelMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "library.mapper.engine", havingValue = "modelmapper")
+public class AuthorModelMapperImpl implements Mapper<AuthorEntity, AuthorDTO> {
+
+    private ModelMapper modelMapper;
+
+    public AuthorModelMapperImpl(ModelMapper modelMapper) {
+        this.modelMapper = modelMapper;
+    }
+
+    @Override
+    public AuthorDTO mapTo(AuthorEntity authorEntity) {
+        return modelMapper.map(authorEntity, AuthorDTO.class);
+    }
+
+    @Override
+    public AuthorEntity mapFrom(AuthorDTO authorDTO) {
+        return modelMapper.map(authorDTO, AuthorEntity.class);
+    }
+}
@@ -1,27 +1,51 @@
 package com.example.Library.mappers.impl;
 
+import com.example.Library.domain.DTO.AuthorDTO;
 import com.example.Library.domain.DTO.BookDTO;
+import com.example.Library.domain.Entities.AuthorEntity;
 import com.example.Library.domain.Entities.BookEntity;
 import com.example.Library.mappers.Mapper;
-import org.modelmapper.ModelMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+//plain getters and setters, no reflection per call. library.mapper.engine=modelmapper switches to BookModelMapperImpl
 @Component
+@ConditionalOnProperty(name = "library.mapper.engine", havingValue = "direct", matchIfMissing = true)
 public class BookMapperImpl implements Mapper<BookEntity, BookDTO> {
 
-    private ModelMapper modelMapper;
+    private Mapper<AuthorEntity, AuthorDTO> authorMapper;
 
-    public BookMapperImpl(ModelMapper modelMapper) {
-        this.modelMapper = modelMapper;
+    public BookMapperImpl(Mapper<AuthorEntity, AuthorDTO> authorMapper) {
+        this.authorMapper = authorMapper;
     }
 
     @Override
     public BookDTO mapTo(BookEntity bookEntity) {
-        return modelMapper.map(bookEntity, BookDTO.class);
+        if (bookEntity == null) {
+            return null;
+        }
+        BookDTO bookDTO = new BookDTO();
+        bookDTO.setIsbn(bookEntity.getIsbn());
+        bookDTO.setTitle(bookEntity.getTitle());
+        bookDTO.setVersion(bookEntity.getVersion());
+        AuthorDTO authorDTO = authorMapper.mapTo(bookEntity.getAuthorEntity());
+        if (authorDTO != null) {
+            authorDTO.setBookCount(null); //books embed their author without the book count, see ETags
+        }
+        bookDTO.setAuthorEntity(authorDTO);
+        return bookDTO;
     }
 
     @Override
     public BookEntity mapFrom(BookDTO bookDTO) {
-        return modelMapper.map(bookDTO, BookEntity.class);
+        if (bookDTO == null) {
+            return null;
+        }
+        BookEntity bookEntity = new BookEntity();
+        bookEntity.setIsbn(bookDTO.getIsbn());
+        bookEntity.setTitle(bookDTO.getTitle());
+        bookEntity.setVersion(bookDTO.getVersion());
+        bookEntity.setAuthorEntity(authorMapper.mapFrom(bookDTO.getAuthorEntity()));
+        return bookEntity;
     }
 }
@@ -0,0 +1,33 @@
+package com.example.Library.mappers.impl;
+
+import com.example.Library.domain.DTO.BookDTO;
+import com.example.Library.domain.Entities.BookEntity;
+import com.example.Library.mappers.Mapper;
+import org.modelmapper.ModelMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "library.mapper.engine", havingValue = "modelmapper")
+public class BookModelMapperImpl implements Mapper<BookEntity, BookDTO> {
+
+    private ModelMapper modelMapper;
+
+    public BookModelMapperImpl(ModelMapper modelMapper) {
+        this.modelMapper = modelMapper;
+    }
+
+    @Override
+    public BookDTO mapTo(BookEntity bookEntity) {
+        BookDTO bookDTO = modelMapper.map(bookEntity, BookDTO.class);
+        if (bookDTO != null && bookDTO.getAuthorEntity() != null) {
+            bookDTO.getAuthorEntity().setBookCount(null); //books embed their author without the book count, see ETags
+        }
+        return bookDTO;
+    }
+
+    @Override
+    public BookEntity mapFrom(BookDTO bookDTO) {
+        return modelMapper.map(bookDTO, BookEntity.class);
+    }
+}
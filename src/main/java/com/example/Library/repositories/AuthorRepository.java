@@ -1,10 +1,49 @@
 package com.example.Library.repositories;
 
+import com.example.Library.domain.DTO.AuthorDTO;
+import com.example.Library.domain.DTO.AuthorVersionDTO;
 import com.example.Library.domain.Entities.AuthorEntity;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 @Repository
-public interface AuthorRepository extends CrudRepository<AuthorEntity, Long> {
+public interface AuthorRepository extends CrudRepository<AuthorEntity, Long>, AuthorWriteRepository {
+
+    //GET /authors: Hibernate 6 keeps the selected values in the query cache, any write to the table invalidates it
+    @Override
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    Iterable<AuthorEntity> findAll();
+
+    @Query("select new com.example.Library.domain.DTO.AuthorDTO(a.id, a.name, a.age, a.version, a.bookCount) from AuthorEntity a where a.id = :id")
+    Optional<AuthorDTO> findDTOById(@Param("id") Long id);
+
+    @Query("select new com.example.Library.domain.DTO.AuthorDTO(a.id, a.name, a.age, a.version, a.bookCount) from AuthorEntity a where a.id in :ids")
+    List<AuthorDTO> findDTOsByIds(@Param("ids") Collection<Long> ids);
+
+    //enough to answer conditional requests without loading the author
+    @Query("select new com.example.Library.domain.DTO.AuthorVersionDTO(a.version, a.bookCount) from AuthorEntity a where a.id = :id")
+    Optional<AuthorVersionDTO> findVersionById(@Param("id") Long id);
+
+    //must be consumed inside a transaction, otherwise the driver ignores the fetch size and buffers every row
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("select a from AuthorEntity a")
+    Stream<AuthorEntity> streamAll();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "5000"))
+    @Query("select a.id from AuthorEntity a")
+    Stream<Long> streamIds();
 }
@@ -0,0 +1,30 @@
+package com.example.Library.repositories;
+
+import com.example.Library.domain.Entities.AuthorEntity;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public interface AuthorWriteRepository {
+
+    /**
+     * Overwrites the author's fields in one statement and returns the updated author, detached,
+     * with its version bumped only if a field actually changed. Empty when there is no author
+     * with that id, or when it no longer carries the expected version.
+     */
+    Optional<AuthorEntity> updateIfExists(Long id, String name, Integer age, Long expectedVersion);
+
+    /**
+     * Sets the non-null fields in one statement and returns the updated author, detached.
+     * Empty when there is no such author, or when it no longer carries the expected version.
+     */
+    Optional<AuthorEntity> updateNonNull(Long id, String name, Integer age, Long expectedVersion);
+
+    /**
+     * Adds the deltas (author id to change) to the authors' book counts in one statement and
+     * returns the updated authors, detached. The version stays: the author's ETag carries
+     * the count itself, and books embed their author without it.
+     */
+    List<AuthorEntity> addToBookCounts(Map<Long, Integer> deltas);
+}
@@ -0,0 +1,106 @@
+package com.example.Library.repositories;
+
+import com.example.Library.domain.Entities.AuthorEntity;
+import jakarta.persistence.EntityManager;
+import org.hibernate.query.NativeQuery;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+class AuthorWriteRepositoryImpl implements AuthorWriteRepository {
+
+    private static final String UPDATE = "UPDATE authors SET " + ReturningDml.setChanged(List.of("name", "age")) + " WHERE id = :id";
+
+    private static final String AUTHOR_RETURNING = "id, name, age, version, book_count";
+    private static final String AUTHOR_COLUMNS = "w.id, w.name, w.age, w.version, w.book_count";
+
+    private ReturningDml dml;
+
+    AuthorWriteRepositoryImpl(EntityManager entityManager) {
+        this.dml = new ReturningDml(entityManager);
+    }
+
+    @Override
+    public Optional<AuthorEntity> updateIfExists(Long id, String name, Integer age, Long expectedVersion) {
+        NativeQuery<?> query = dml.query(expectedVersion != null ? UPDATE + " AND version = :expectedVersion" : UPDATE, AUTHOR_RETURNING, AUTHOR_COLUMNS, "")
+                .setParameter("id", id, Long.class)
+                .setParameter("name", name, String.class)
+                .setParameter("age", age, Integer.class);
+        if (expectedVersion != null) {
+            query.setParameter("expectedVersion", expectedVersion, Long.class);
+        }
+        Optional<AuthorEntity> updated = ReturningDml.row(query).map(AuthorWriteRepositoryImpl::toAuthor);
+        updated.ifPresent(author -> dml.evictWritten(AuthorEntity.class, List.of(id)));
+        return updated;
+    }
+
+    @Override
+    public Optional<AuthorEntity> updateNonNull(Long id, String name, Integer age, Long expectedVersion) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        if (name != null) {
+            values.put("name", name);
+        }
+        if (age != null) {
+            values.put("age", age);
+        }
+        //nothing to set: the same row shape is read instead, so a version pin is still checked
+        String where = expectedVersion != null ? " WHERE id = :id AND version = :expectedVersion" : " WHERE id = :id";
+        NativeQuery<?> query = values.isEmpty()
+                ? dml.select("SELECT " + AUTHOR_COLUMNS + " FROM authors w" + where)
+                : dml.query("UPDATE authors SET " + ReturningDml.setChanged(List.copyOf(values.keySet())) + where,
+                        AUTHOR_RETURNING, AUTHOR_COLUMNS, "");
+        boolean writes = !values.isEmpty();
+        values.put("id", id);
+        if (expectedVersion != null) {
+            values.put("expectedVersion", expectedVersion);
+        }
+        Optional<AuthorEntity> updated = ReturningDml.row(ReturningDml.bind(query, values)).map(AuthorWriteRepositoryImpl::toAuthor);
+        if (writes && updated.isPresent()) {
+            dml.evictWritten(AuthorEntity.class, List.of(id));
+        }
+        return updated;
+    }
+
+    // relative updates, so concurrent writers only queue on the row lock and never lose a change. The version
+    // stays: it is part of the ETag of every book by the author, which a count move would otherwise all change
+    @Override
+    public List<AuthorEntity> addToBookCounts(Map<Long, Integer> deltas) {
+        return addToBookCounts(dml, deltas);
+    }
+
+    static List<AuthorEntity> addToBookCounts(ReturningDml dml, Map<Long, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return List.of();
+        }
+        Map<String, Object> values = new LinkedHashMap<>();
+        StringBuilder delta = new StringBuilder("CASE id");
+        int i = 0;
+        for (Map.Entry<Long, Integer> entry : deltas.entrySet()) {
+            delta.append(" WHEN :id").append(i).append(" THEN :delta").append(i);
+            values.put("id" + i, entry.getKey());
+            values.put("delta" + i, entry.getValue());
+            i++;
+        }
+        delta.append(" END");
+        String ids = values.keySet().stream().filter(name -> name.startsWith("id")).map(name -> ":" + name).collect(Collectors.joining(", "));
+        String update = "UPDATE authors SET book_count = book_count + " + delta + " WHERE id IN (" + ids + ")";
+        List<AuthorEntity> updated = ReturningDml.rows(ReturningDml.bind(dml.query(update, AUTHOR_RETURNING, AUTHOR_COLUMNS, ""), values)).stream()
+                .map(AuthorWriteRepositoryImpl::toAuthor)
+                .collect(Collectors.toList());
+        dml.evictWritten(AuthorEntity.class, deltas.keySet());
+        return updated;
+    }
+
+    static AuthorEntity toAuthor(Object[] row) {
+        return AuthorEntity.builder()
+                .id(ReturningDml.toLong(row[0]))
+                .name((String) row[1])
+                .age(ReturningDml.toInteger(row[2]))
+                .version(ReturningDml.toLong(row[3]))
+                .bookCount(ReturningDml.toInteger(row[4]))
+                .build();
+    }
+}
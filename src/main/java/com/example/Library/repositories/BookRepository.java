@@ -2,11 +2,90 @@ package com.example.Library.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import com.example.Library.domain.DTO.BookDTO;
+import com.example.Library.domain.DTO.BookVersionDTO;
 import com.example.Library.domain.Entities.BookEntity;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 @Repository
-public interface BookRepository extends CrudRepository<BookEntity, String>, PagingAndSortingRepository<BookEntity, String> {
+public interface BookRepository extends CrudRepository<BookEntity, String>, PagingAndSortingRepository<BookEntity, String>, BookWriteRepository {
+
+    //the eager author would otherwise be loaded with one extra select per distinct author on the page
+    @Override
+    @EntityGraph(attributePaths = "authorEntity")
+    Page<BookEntity> findAll(Pageable pageable);
+
+    @Override
+    @EntityGraph(attributePaths = "authorEntity")
+    Optional<BookEntity> findById(String isbn);
+
+    //read paths that only need the DTO: one joined select, no entity hydration or dirty checking
+    String BOOK_DTO_PROJECTION = "select new com.example.Library.domain.DTO.BookDTO(b.isbn, b.title, b.version, a.id, a.name, a.age, a.version)"
+            + " from BookEntity b left join b.authorEntity a";
+
+    @Query(value = BOOK_DTO_PROJECTION, countQuery = "select count(b) from BookEntity b")
+    Page<BookDTO> findAllDTOs(Pageable pageable);
+
+    //fetches one row past the page instead of counting
+    @Query(BOOK_DTO_PROJECTION)
+    Slice<BookDTO> findDTOSlice(Pageable pageable);
+
+    @Query(BOOK_DTO_PROJECTION + " where b.isbn = :isbn")
+    Optional<BookDTO> findDTOById(@Param("isbn") String isbn);
+
+    @Query(BOOK_DTO_PROJECTION + " where b.isbn in :isbns")
+    List<BookDTO> findDTOsByIds(@Param("isbns") Collection<String> isbns);
+
+    //enough to answer conditional requests without loading the book
+    @Query("select new com.example.Library.domain.DTO.BookVersionDTO(b.version, a.version) from BookEntity b left join b.authorEntity a where b.isbn = :isbn")
+    Optional<BookVersionDTO> findVersionById(@Param("isbn") String isbn);
+
+    //must be consumed inside a transaction, otherwise the driver ignores the fetch size and buffers every row
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("select b from BookEntity b left join fetch b.authorEntity")
+    Stream<BookEntity> streamAll();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "5000"))
+    @Query("select b.isbn from BookEntity b")
+    Stream<String> streamIsbns();
+
+    //keyset queries: the Pageable only carries the limit, returning a List skips the count query
+
+    @Query("select b from BookEntity b left join fetch b.authorEntity order by b.isbn")
+    List<BookEntity> findFirstByIsbn(Pageable limit);
+
+    @Query("select b from BookEntity b left join fetch b.authorEntity where b.isbn > :isbn order by b.isbn")
+    List<BookEntity> findNextByIsbn(@Param("isbn") String isbn, Pageable limit);
+
+    //books without a title are left out, as the row value comparison of the next pages leaves them out
+    @Query("select b from BookEntity b left join fetch b.authorEntity where b.title is not null order by b.title, b.isbn")
+    List<BookEntity> findFirstByTitle(Pageable limit);
+
+    @Query("select b from BookEntity b left join fetch b.authorEntity where (b.title, b.isbn) > (:title, :isbn) order by b.title, b.isbn")
+    List<BookEntity> findNextByTitle(@Param("title") String title, @Param("isbn") String isbn, Pageable limit);
+
+    //an author's books, a range scan of books_author_id_isbn_idx
+    @EntityGraph(attributePaths = "authorEntity")
+    List<BookEntity> findByAuthorEntityIdOrderByIsbn(Long authorId, Pageable limit);
+
+    @EntityGraph(attributePaths = "authorEntity")
+    List<BookEntity> findByAuthorEntityIdAndIsbnGreaterThanOrderByIsbn(Long authorId, String isbn, Pageable limit);
 }
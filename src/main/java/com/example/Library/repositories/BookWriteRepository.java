@@ -0,0 +1,39 @@
+package com.example.Library.repositories;
+
+import com.example.Library.domain.Entities.AuthorEntity;
+import com.example.Library.domain.Entities.BookEntity;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface BookWriteRepository {
+
+    /**
+     * Inserts the book with version 0, or overwrites it and bumps its version only if a value
+     * actually changed, and moves the book between its previous and its new author's book
+     * counts. One statement on PostgreSQL; H2 has no data-modifying CTEs, so there the counts
+     * take a second one when the author changed. With an expected version only that version
+     * of the row is overwritten, and nothing is inserted; empty when it no longer carries it.
+     */
+    Optional<Upserted> upsert(String isbn, String title, Long authorId, Long expectedVersion);
+
+    /**
+     * The book's new version, whether it was inserted, and the authors whose book count
+     * changed, detached, with their new version and count.
+     */
+    record Upserted(long version, boolean created, List<AuthorEntity> recountedAuthors) {
+    }
+
+    /**
+     * Sets the non-null fields in one statement and returns the updated book with its author,
+     * detached. Empty when there is no such book, or when it no longer carries the expected
+     * version.
+     */
+    Optional<BookEntity> updateNonNull(String isbn, String title, Long expectedVersion);
+
+    /**
+     * Deletes the book and returns it as it was, its author only carrying the id. Empty when
+     * there was no such book.
+     */
+    Optional<BookEntity> deleteReturning(String isbn);
+}
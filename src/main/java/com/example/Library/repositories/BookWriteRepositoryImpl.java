@@ -0,0 +1,177 @@
+package com.example.Library.repositories;
+
+import com.example.Library.domain.Entities.AuthorEntity;
+import com.example.Library.domain.Entities.BookEntity;
+import jakarta.persistence.EntityManager;
+import org.hibernate.query.NativeQuery;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+class BookWriteRepositoryImpl implements BookWriteRepository {
+
+    private static final String UPDATE = "UPDATE books SET " + ReturningDml.setChanged(List.of("title", "author_id")) + " WHERE isbn = :isbn";
+
+    //the previous row is read and locked in the same statement, so the book count change is decided
+    //and applied there too. A row inserted concurrently after the statement's snapshot is not in
+    //previous, so the conflict updates nothing and the statement returns no row
+    private static final String POSTGRES_UPSERT = "WITH previous AS (SELECT author_id AS previous_author_id FROM books WHERE isbn = :isbn FOR UPDATE),"
+            + " w AS (INSERT INTO books (isbn, title, author_id, version) VALUES (:isbn, :title, :author_id, 0)"
+            + " ON CONFLICT (isbn) DO UPDATE SET title = excluded.title, author_id = excluded.author_id,"
+            + " version = CASE WHEN books.title IS DISTINCT FROM excluded.title OR books.author_id IS DISTINCT FROM excluded.author_id"
+            + " THEN books.version + 1 ELSE books.version END"
+            + " WHERE EXISTS (SELECT 1 FROM previous)"
+            + " RETURNING books.version, books.author_id, (SELECT previous_author_id FROM previous) AS previous_author_id,"
+            + " NOT EXISTS (SELECT 1 FROM previous) AS created), ";
+
+    private static final String POSTGRES_UPDATE = "WITH previous AS (SELECT author_id AS previous_author_id FROM books WHERE isbn = :isbn AND version = :expectedVersion FOR UPDATE),"
+            + " w AS (" + UPDATE + " AND version = :expectedVersion AND EXISTS (SELECT 1 FROM previous)"
+            + " RETURNING books.version, books.author_id, (SELECT previous_author_id FROM previous) AS previous_author_id, FALSE AS created), ";
+
+    //one row per recounted author, or one with nulls when the author did not change. The count is not
+    //versioned, see AuthorWriteRepositoryImpl.addToBookCounts
+    private static final String POSTGRES_COUNTS = "counts AS (UPDATE authors"
+            + " SET book_count = authors.book_count + CASE WHEN authors.id = w.author_id THEN 1 ELSE -1 END"
+            + " FROM w WHERE authors.id IN (w.author_id, w.previous_author_id) AND w.author_id IS DISTINCT FROM w.previous_author_id"
+            + " RETURNING authors.id, authors.name, authors.age, authors.version, authors.book_count)"
+            + " SELECT w.version, w.created, c.id, c.name, c.age, c.version, c.book_count FROM w LEFT JOIN counts c ON TRUE";
+
+    private static final String H2_MERGE = "MERGE INTO books b"
+            + " USING (SELECT CAST(:isbn AS VARCHAR(255)) AS isbn, CAST(:title AS VARCHAR(255)) AS title, CAST(:author_id AS BIGINT) AS author_id) s"
+            + " ON b.isbn = s.isbn"
+            + " WHEN MATCHED THEN UPDATE SET title = s.title, author_id = s.author_id,"
+            + " version = CASE WHEN b.title IS DISTINCT FROM s.title OR b.author_id IS DISTINCT FROM s.author_id THEN b.version + 1 ELSE b.version END"
+            + " WHEN NOT MATCHED THEN INSERT (isbn, title, author_id, version) VALUES (s.isbn, s.title, s.author_id, 0)";
+
+    //the overwritten row as it was, none when the book was inserted: its new version and previous author
+    private static final String H2_PREVIOUS = "SELECT CASE WHEN p.title IS DISTINCT FROM CAST(:title AS VARCHAR(255))"
+            + " OR p.author_id IS DISTINCT FROM CAST(:author_id AS BIGINT) THEN p.version + 1 ELSE p.version END, p.author_id"
+            + " FROM OLD TABLE (%s) p";
+
+    private static final String DELETE = "DELETE FROM books WHERE isbn = :isbn";
+
+    //same columns as BookRepository.BOOK_DTO_PROJECTION
+    private static final String BOOK_COLUMNS = "w.isbn, w.title, w.version, a.id, a.name, a.age, a.version, a.book_count";
+    private static final String AUTHOR_JOIN = "LEFT JOIN authors a ON a.id = w.author_id";
+
+    private ReturningDml dml;
+
+    BookWriteRepositoryImpl(EntityManager entityManager) {
+        this.dml = new ReturningDml(entityManager);
+    }
+
+    @Override
+    public Optional<Upserted> upsert(String isbn, String title, Long authorId, Long expectedVersion) {
+        if (!dml.isPostgres()) {
+            return upsertH2(isbn, title, authorId, expectedVersion);
+        }
+        while (true) {
+            Optional<Upserted> upserted = upsertPostgres(isbn, title, authorId, expectedVersion);
+            //unpinned, nothing is written only after losing to a concurrent insert: the next statement sees that row
+            if (upserted.isPresent() || expectedVersion != null) {
+                return upserted;
+            }
+        }
+    }
+
+    private Optional<Upserted> upsertPostgres(String isbn, String title, Long authorId, Long expectedVersion) {
+        String upsert = (expectedVersion != null ? POSTGRES_UPDATE : POSTGRES_UPSERT) + POSTGRES_COUNTS;
+        List<Object[]> rows = ReturningDml.rows(bind(dml.select(upsert), isbn, title, authorId, expectedVersion));
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        List<AuthorEntity> recountedAuthors = rows.stream()
+                .filter(row -> row[2] != null)
+                .map(row -> AuthorWriteRepositoryImpl.toAuthor(Arrays.copyOfRange(row, 2, row.length)))
+                .collect(Collectors.toList());
+        if (!recountedAuthors.isEmpty()) {
+            dml.evictWritten(AuthorEntity.class, recountedAuthors.stream().map(AuthorEntity::getId).toList());
+        }
+        return Optional.of(new Upserted(ReturningDml.toLong(rows.get(0)[0]), (Boolean) rows.get(0)[1], recountedAuthors));
+    }
+
+    private Optional<Upserted> upsertH2(String isbn, String title, Long authorId, Long expectedVersion) {
+        String write = expectedVersion != null ? UPDATE + " AND version = :expectedVersion" : H2_MERGE;
+        Optional<Object[]> previous = ReturningDml.row(bind(dml.select(String.format(H2_PREVIOUS, write)), isbn, title, authorId, expectedVersion));
+        if (previous.isEmpty() && expectedVersion != null) {
+            return Optional.empty();
+        }
+        Long previousAuthorId = previous.map(row -> ReturningDml.toLong(row[1])).orElse(null);
+        Map<Long, Integer> deltas = new HashMap<>();
+        if (!Objects.equals(previousAuthorId, authorId)) {
+            if (previousAuthorId != null) {
+                deltas.put(previousAuthorId, -1);
+            }
+            if (authorId != null) {
+                deltas.put(authorId, 1);
+            }
+        }
+        return Optional.of(new Upserted(previous.map(row -> ReturningDml.toLong(row[0])).orElse(0L), previous.isEmpty(),
+                AuthorWriteRepositoryImpl.addToBookCounts(dml, deltas)));
+    }
+
+    private static NativeQuery<?> bind(NativeQuery<?> query, String isbn, String title, Long authorId, Long expectedVersion) {
+        query.setParameter("isbn", isbn, String.class)
+                .setParameter("title", title, String.class)
+                .setParameter("author_id", authorId, Long.class);
+        if (expectedVersion != null) {
+            query.setParameter("expectedVersion", expectedVersion, Long.class);
+        }
+        return query;
+    }
+
+    @Override
+    public Optional<BookEntity> updateNonNull(String isbn, String title, Long expectedVersion) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        if (title != null) {
+            values.put("title", title);
+        }
+        //nothing to set: the same row shape is read instead, so a version pin is still checked
+        String where = expectedVersion != null ? " WHERE isbn = :isbn AND version = :expectedVersion" : " WHERE isbn = :isbn";
+        NativeQuery<?> query = values.isEmpty()
+                ? dml.select("SELECT " + BOOK_COLUMNS + " FROM (SELECT * FROM books" + where + ") w " + AUTHOR_JOIN)
+                : dml.query("UPDATE books SET " + ReturningDml.setChanged(List.copyOf(values.keySet())) + where,
+                        "isbn, title, author_id, version", BOOK_COLUMNS, AUTHOR_JOIN);
+        values.put("isbn", isbn);
+        if (expectedVersion != null) {
+            values.put("expectedVersion", expectedVersion);
+        }
+        return ReturningDml.row(ReturningDml.bind(query, values)).map(BookWriteRepositoryImpl::toBook);
+    }
+
+    @Override
+    public Optional<BookEntity> deleteReturning(String isbn) {
+        return ReturningDml.row(dml.queryDeleted(DELETE, "version, author_id", "w.version, w.author_id").setParameter("isbn", isbn, String.class))
+                .map(row -> toVersionAndAuthorId(isbn, row));
+    }
+
+    private static BookEntity toVersionAndAuthorId(String isbn, Object[] row) {
+        return BookEntity.builder()
+                .isbn(isbn)
+                .version(ReturningDml.toLong(row[0]))
+                .authorEntity(row[1] == null ? null : AuthorEntity.builder().id(ReturningDml.toLong(row[1])).build())
+                .build();
+    }
+
+    private static BookEntity toBook(Object[] row) {
+        AuthorEntity author = row[3] == null ? null : AuthorEntity.builder()
+                .id(ReturningDml.toLong(row[3]))
+                .name((String) row[4])
+                .age(ReturningDml.toInteger(row[5]))
+                .version(ReturningDml.toLong(row[6]))
+                .bookCount(ReturningDml.toInteger(row[7]))
+                .build();
+        return BookEntity.builder()
+                .isbn((String) row[0])
+                .title((String) row[1])
+                .version(ReturningDml.toLong(row[2]))
+                .authorEntity(author)
+                .build();
+    }
+}
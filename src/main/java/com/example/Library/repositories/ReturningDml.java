@@ -0,0 +1,125 @@
+package com.example.Library.repositories;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.cache.spi.CacheImplementor;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.query.NativeQuery;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Native INSERT/UPDATE/MERGE statements that read the written rows back in the same round
+ * trip: a data-modifying CTE with RETURNING on PostgreSQL, a FINAL TABLE delta table on H2.
+ * Either way the written rows are visible to the select as {@code w}. Deleted rows are read
+ * from an OLD TABLE on H2.
+ */
+class ReturningDml {
+
+    private EntityManager entityManager;
+
+    private boolean postgres;
+
+    ReturningDml(EntityManager entityManager) {
+        this.entityManager = entityManager;
+        Dialect dialect = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        if (!(dialect instanceof PostgreSQLDialect) && !(dialect instanceof H2Dialect)) {
+            throw new IllegalStateException("Native writes are only written for PostgreSQL and H2, not " + dialect);
+        }
+        this.postgres = dialect instanceof PostgreSQLDialect;
+    }
+
+    boolean isPostgres() {
+        return postgres;
+    }
+
+    //returning lists the written columns the select reads (PostgreSQL only sees those), joins may add tables
+    NativeQuery<?> query(String dml, String returning, String select, String joins) {
+        return query("FINAL", dml, returning, select, joins);
+    }
+
+    //for DELETE: H2 only has the rows as they were before the statement
+    NativeQuery<?> queryDeleted(String dml, String returning, String select) {
+        return query("OLD", dml, returning, select, "");
+    }
+
+    private NativeQuery<?> query(String h2DeltaTable, String dml, String returning, String select, String joins) {
+        String sql = postgres
+                ? "WITH w AS (" + dml + " RETURNING " + returning + ") SELECT " + select + " FROM w " + joins
+                : "SELECT " + select + " FROM " + h2DeltaTable + " TABLE (" + dml + ") w " + joins;
+        return entityManager.createNativeQuery(sql).unwrap(NativeQuery.class);
+    }
+
+    NativeQuery<?> queryVersion(String dml) {
+        return query(dml, "version", "w.version", "");
+    }
+
+    NativeQuery<?> select(String sql) {
+        return entityManager.createNativeQuery(sql).unwrap(NativeQuery.class);
+    }
+
+    //native writes go around Hibernate's cache maintenance: the written rows leave the second-level
+    //cache now and again after the transaction (a concurrent load may have put the old row back in
+    //between), and cached queries over the table are held off until then
+    void evictWritten(Class<?> entityClass, Collection<?> ids) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        CacheImplementor cache = session.getFactory().getCache();
+        List<String> querySpaces = new ArrayList<>();
+        session.getFactory().getMappingMetamodel().getEntityDescriptor(entityClass).visitQuerySpaces(querySpaces::add);
+        String[] spaces = querySpaces.toArray(String[]::new);
+        List<?> writtenIds = List.copyOf(ids);
+        writtenIds.forEach(id -> cache.evictEntityData(entityClass, id));
+        cache.getTimestampsCache().preInvalidate(spaces, session);
+        session.getActionQueue().registerProcess((success, completedSession) -> {
+            writtenIds.forEach(id -> cache.evictEntityData(entityClass, id));
+            cache.getTimestampsCache().invalidate(spaces, completedSession);
+        });
+    }
+
+    //SET clause for the given columns, each bound to a parameter of the same name. The version only
+    //moves when a value actually changes, like Hibernate's dirty checking, so ETags stay put otherwise
+    static String setChanged(List<String> columns) {
+        return columns.stream().map(column -> column + " = :" + column).collect(Collectors.joining(", "))
+                + ", version = CASE WHEN "
+                + columns.stream().map(column -> column + " IS DISTINCT FROM :" + column).collect(Collectors.joining(" OR "))
+                + " THEN version + 1 ELSE version END";
+    }
+
+    @SuppressWarnings("unchecked")
+    static NativeQuery<?> bind(NativeQuery<?> query, Map<String, Object> values) {
+        values.forEach((name, value) -> query.setParameter(name, value, (Class<Object>) value.getClass()));
+        return query;
+    }
+
+    //empty when no row was written
+    static Optional<Long> version(NativeQuery<?> query) {
+        List<?> rows = query.getResultList();
+        return rows.isEmpty() ? Optional.empty() : Optional.of(((Number) rows.get(0)).longValue());
+    }
+
+    static Optional<Object[]> row(NativeQuery<?> query) {
+        List<Object[]> rows = rows(query);
+        return rows.isEmpty() ? Optional.empty() : Optional.of(rows.get(0));
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<Object[]> rows(NativeQuery<?> query) {
+        return (List<Object[]>) query.getResultList();
+    }
+
+    static Long toLong(Object value) {
+        return value == null ? null : ((Number) value).longValue();
+    }
+
+    static Integer toInteger(Object value) {
+        return value == null ? null : ((Number) value).intValue();
+    }
+}
@@ -0,0 +1,305 @@
+package com.example.Library.search;
+
+import com.example.Library.domain.DTO.AuthorDTO;
+import com.example.Library.domain.DTO.BookDTO;
+import com.example.Library.domain.Entities.AuthorEntity;
+import com.example.Library.domain.Entities.BookEntity;
+import com.example.Library.mappers.Mapper;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over book titles and author names. Terms are lower-cased,
+ * accent-stripped runs of letters and digits; the postings dictionary is sorted so the
+ * last query term also matches as a prefix (search-as-you-type). All query terms must
+ * match: candidates are read from the posting lists of the most selective term only,
+ * so a common word next to a rare one costs little. Hits are ranked by field weight
+ * (title over author) times idf, with exact term matches ahead of prefix matches, and
+ * served from the indexed DTOs without touching the database.
+ */
+@Component
+public class BookSearchIndex {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private static final int TITLE_WEIGHT = 2;
+    private static final int AUTHOR_WEIGHT = 1;
+    private static final double PREFIX_MATCH_FACTOR = 0.5;
+
+    //min-heap order for the top hits: lowest score, then highest isbn, is dropped first
+    private static final Comparator<Hit> WORST_HIT_FIRST = Comparator.comparingDouble(Hit::score)
+            .thenComparing(Hit::isbn, Comparator.reverseOrder());
+
+    //term -> isbn -> summed field weight
+    private NavigableMap<String, Map<String, Integer>> postings = new TreeMap<>();
+
+    private Map<String, IndexedBook> books = new HashMap<>();
+
+    private Map<Long, Set<String>> isbnsByAuthor = new HashMap<>();
+
+    private WriteOrder<String> writeOrder;
+
+    //the last applied write of each author whose sequence is still kept, for book writes that carry an older copy
+    private Map<Long, AuthorDTO> writtenAuthors = new HashMap<>();
+
+    private WriteOrder<Long> authorWriteOrder;
+
+    private ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Mapper<BookEntity, BookDTO> bookMapper;
+
+    private Mapper<AuthorEntity, AuthorDTO> authorMapper;
+
+    public BookSearchIndex(Mapper<BookEntity, BookDTO> bookMapper, Mapper<AuthorEntity, AuthorDTO> authorMapper, WriteSequences writeSequences) {
+        this.bookMapper = bookMapper;
+        this.authorMapper = authorMapper;
+        this.writeOrder = new WriteOrder<>(writeSequences);
+        this.authorWriteOrder = new WriteOrder<>(writeSequences, writtenAuthors::remove);
+    }
+
+    private record IndexedBook(BookDTO book, Map<String, Integer> terms) {
+    }
+
+    private record Hit(String isbn, double score) {
+    }
+
+    public void rebuild(Consumer<Consumer<BookEntity>> source) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            books.clear();
+            isbnsByAuthor.clear();
+            writeOrder.clear();
+            authorWriteOrder.clear();
+            writtenAuthors.clear();
+            source.accept(book -> index(bookMapper.mapTo(book)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // the author is shared, so its other books pick up a changed name too. A write older than the last
+    // one applied to the isbn is dropped, and the author it carries is only applied when it is newer
+    // than the author's last write, see WriteOrder
+    public void put(BookEntity bookEntity, long sequence) {
+        BookDTO book = bookMapper.mapTo(bookEntity);
+        lock.writeLock().lock();
+        try {
+            if (!writeOrder.put(book.getIsbn(), sequence)) {
+                return;
+            }
+            AuthorDTO author = book.getAuthorEntity();
+            boolean authorApplied = author != null && authorWriteOrder.put(author.getId(), sequence);
+            if (author != null && !authorApplied) {
+                book.setAuthorEntity(writtenAuthors.get(author.getId()));
+            }
+            index(book);
+            if (authorApplied) {
+                writtenAuthors.put(author.getId(), author);
+                refreshAuthor(author);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putAuthor(AuthorEntity authorEntity, long sequence) {
+        AuthorDTO author = authorMapper.mapTo(authorEntity);
+        author.setBookCount(null); //indexed books embed their author without it, so a count move changes none of them
+        lock.writeLock().lock();
+        try {
+            if (!authorWriteOrder.put(author.getId(), sequence)) {
+                return;
+            }
+            writtenAuthors.put(author.getId(), author);
+            refreshAuthor(author);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String isbn, long sequence) {
+        lock.writeLock().lock();
+        try {
+            if (!writeOrder.remove(isbn, sequence)) {
+                return;
+            }
+            unindex(isbn);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return books.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<BookDTO> search(String query, int limit) {
+        List<String> queryTerms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (queryTerms.isEmpty() || limit < 1) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            //candidates come from the most selective term, the others are checked per candidate
+            int driver = -1;
+            long fewestMatches = Long.MAX_VALUE;
+            for (int i = 0; i < queryTerms.size(); i++) {
+                long matches = countMatches(queryTerms.get(i), isPrefix(queryTerms, i), fewestMatches);
+                if (matches < fewestMatches) {
+                    fewestMatches = matches;
+                    driver = i;
+                }
+            }
+            if (fewestMatches == 0) {
+                return List.of();
+            }
+            Collection<Map<String, Integer>> candidatePostings = isPrefix(queryTerms, driver)
+                    ? postings.subMap(queryTerms.get(driver), true, queryTerms.get(driver) + Character.MAX_VALUE, false).values()
+                    : List.of(postings.get(queryTerms.get(driver)));
+
+            PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1, WORST_HIT_FIRST);
+            Set<String> seen = new HashSet<>();
+            for (Map<String, Integer> termPostings : candidatePostings) {
+                for (String isbn : termPostings.keySet()) {
+                    if (!seen.add(isbn)) {
+                        continue;
+                    }
+                    double score = score(books.get(isbn), queryTerms);
+                    if (score > 0) {
+                        top.offer(new Hit(isbn, score));
+                        if (top.size() > limit) {
+                            top.poll();
+                        }
+                    }
+                }
+            }
+            List<BookDTO> hits = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                hits.add(books.get(top.poll().isbn()).book());
+            }
+            Collections.reverse(hits);
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean isPrefix(List<String> queryTerms, int i) {
+        return i == queryTerms.size() - 1;
+    }
+
+    //stops counting once the current best is beaten, short prefixes can expand to much of the dictionary
+    private long countMatches(String term, boolean prefix, long stopAt) {
+        if (!prefix) {
+            Map<String, Integer> termPostings = postings.get(term);
+            return termPostings == null ? 0 : termPostings.size();
+        }
+        long matches = 0;
+        for (Map<String, Integer> termPostings : postings.subMap(term, true, term + Character.MAX_VALUE, false).values()) {
+            matches += termPostings.size();
+            if (matches >= stopAt) {
+                break;
+            }
+        }
+        return matches;
+    }
+
+    //0 unless every term matches; a prefix keeps its best completion in the book
+    private double score(IndexedBook book, List<String> queryTerms) {
+        double score = 0;
+        for (int i = 0; i < queryTerms.size(); i++) {
+            String term = queryTerms.get(i);
+            double termScore = 0;
+            if (isPrefix(queryTerms, i)) {
+                for (Map.Entry<String, Integer> bookTerm : book.terms().entrySet()) {
+                    if (bookTerm.getKey().startsWith(term)) {
+                        double matchFactor = bookTerm.getKey().length() == term.length() ? 1.0 : PREFIX_MATCH_FACTOR;
+                        termScore = Math.max(termScore, bookTerm.getValue() * idf(bookTerm.getKey()) * matchFactor);
+                    }
+                }
+            } else {
+                Integer weight = book.terms().get(term);
+                termScore = weight == null ? 0 : weight * idf(term);
+            }
+            if (termScore == 0) {
+                return 0;
+            }
+            score += termScore;
+        }
+        return score;
+    }
+
+    private double idf(String term) {
+        return Math.log(1.0 + (double) books.size() / postings.get(term).size());
+    }
+
+    private void index(BookDTO book) {
+        unindex(book.getIsbn());
+        Map<String, Integer> terms = new HashMap<>();
+        tokenize(book.getTitle()).forEach(term -> terms.merge(term, TITLE_WEIGHT, Integer::sum));
+        if (book.getAuthorEntity() != null) {
+            tokenize(book.getAuthorEntity().getName()).forEach(term -> terms.merge(term, AUTHOR_WEIGHT, Integer::sum));
+            isbnsByAuthor.computeIfAbsent(book.getAuthorEntity().getId(), id -> new HashSet<>()).add(book.getIsbn());
+        }
+        terms.forEach((term, weight) -> postings.computeIfAbsent(term, t -> new HashMap<>()).put(book.getIsbn(), weight));
+        books.put(book.getIsbn(), new IndexedBook(book, terms));
+    }
+
+    private void unindex(String isbn) {
+        IndexedBook indexed = books.remove(isbn);
+        if (indexed == null) {
+            return;
+        }
+        for (String term : indexed.terms().keySet()) {
+            Map<String, Integer> termPostings = postings.get(term);
+            termPostings.remove(isbn);
+            if (termPostings.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+        AuthorDTO author = indexed.book().getAuthorEntity();
+        if (author != null) {
+            Set<String> isbns = isbnsByAuthor.get(author.getId());
+            isbns.remove(isbn);
+            if (isbns.isEmpty()) {
+                isbnsByAuthor.remove(author.getId());
+            }
+        }
+    }
+
+    private void refreshAuthor(AuthorDTO author) {
+        for (String isbn : List.copyOf(isbnsByAuthor.getOrDefault(author.getId(), Set.of()))) {
+            BookDTO indexed = books.get(isbn).book();
+            if (!author.equals(indexed.getAuthorEntity())) {
+                index(new BookDTO(indexed.getIsbn(), indexed.getTitle(), author, indexed.getVersion()));
+            }
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String folded = COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        List<String> terms = new ArrayList<>();
+        for (String term : NON_WORD.split(folded.toLowerCase(Locale.ROOT))) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.Library.search;
+
+import com.example.Library.hotkeys.HotKeyTracker;
+import com.example.Library.hotkeys.HotKeys;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Hands the read counts of the most read books from {@link HotKeys} to the {@link TitleSuggester}
+ * every {@code library.suggest.popularity-refresh}, so suggestions follow what is read rather
+ * than being re-ranked on every read. With hot keys disabled there are no counts, and the
+ * suggestions go by the book count alone.
+ */
+@Component
+public class TitlePopularity implements SmartInitializingSingleton, DisposableBean {
+
+    private HotKeys hotKeys;
+
+    private TitleSuggester titleSuggester;
+
+    private Duration refresh;
+
+    private ScheduledExecutorService refresher;
+
+    public TitlePopularity(HotKeys hotKeys,
+                           TitleSuggester titleSuggester,
+                           @Value("${library.suggest.popularity-refresh:1m}") Duration refresh) {
+        this.hotKeys = hotKeys;
+        this.titleSuggester = titleSuggester;
+        this.refresh = refresh;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        refresher = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("title-popularity").daemon().factory());
+        refresher.scheduleWithFixedDelay(this::refresh, refresh.toMillis(), refresh.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void refresh() {
+        Map<String, Long> readsByIsbn = hotKeys.topBooks(Integer.MAX_VALUE).stream()
+                .collect(Collectors.toMap(HotKeyTracker.HotKey::key, HotKeyTracker.HotKey::estimate));
+        titleSuggester.rank(readsByIsbn);
+    }
+
+    @Override
+    public void destroy() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package com.example.Library.search;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Title typeahead over a radix trie of normalized titles (the terms of
+ * {@link BookSearchIndex#tokenize} joined by single spaces). Every node keeps the
+ * top-N completions of its subtree, so a suggestion is a walk down the prefix and a
+ * copy of at most N entries, whatever the catalog size. Completions are ranked by how
+ * often their books were read lately, as counted by {@link com.example.Library.hotkeys.HotKeys}
+ * and handed over by {@link TitlePopularity}, then by how many books carry the title, then
+ * shorter and alphabetically first. Only the most read books have reads, the rest of the
+ * catalog goes by the book count.
+ * <p>
+ * A write only touches the path of the changed title: its terminal is updated, empty
+ * nodes are pruned or merged, and the top lists are recomputed bottom-up from the
+ * children's lists. New read counts only recompute the paths of the titles whose reads moved.
+ */
+@Component
+public class TitleSuggester {
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final TitleEntry[] NO_ENTRIES = new TitleEntry[0];
+
+    private static final Comparator<TitleEntry> BEST_FIRST = Comparator.comparingLong((TitleEntry entry) -> entry.reads).reversed()
+            .thenComparing(Comparator.comparingInt((TitleEntry entry) -> entry.count).reversed())
+            .thenComparingInt(entry -> entry.key.length())
+            .thenComparing(entry -> entry.key);
+
+    private int topN;
+
+    private Node root = new Node("");
+
+    private Map<String, String> keysByIsbn = new HashMap<>();
+
+    private Map<String, Long> readsByIsbn = new HashMap<>(); //of the most read isbns only, see rank
+
+    private WriteOrder<String> writeOrder;
+
+    private ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public TitleSuggester(@Value("${library.suggest.top-n:10}") int topN, WriteSequences writeSequences) {
+        this.topN = topN;
+        this.writeOrder = new WriteOrder<>(writeSequences);
+    }
+
+    private static final class Node {
+        String label; //edge label from the parent
+        Node[] children = NO_CHILDREN; //sorted by first label char
+        TitleEntry terminal; //set when a title ends here
+        TitleEntry[] top = NO_ENTRIES; //best completions in this subtree, best first
+
+        Node(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final class TitleEntry {
+        final String key;
+        String display; //as last written, titles that differ only in case share the entry
+        int count;
+        long reads; //of its books, summed
+
+        TitleEntry(String key, String display) {
+            this.key = key;
+            this.display = display;
+        }
+    }
+
+    public void rebuild(Map<String, String> titlesByIsbn) {
+        lock.writeLock().lock();
+        try {
+            root = new Node("");
+            keysByIsbn.clear();
+            writeOrder.clear();
+            titlesByIsbn.forEach((isbn, title) -> {
+                String key = normalize(title);
+                if (!key.isEmpty()) {
+                    keysByIsbn.put(isbn, key);
+                    addTitle(descend(key, new ArrayList<>(), true), key, title, reads(isbn));
+                }
+            });
+            recomputeAll(root); //once at the end instead of per title
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //a write older than the last one applied to the isbn is dropped, see WriteOrder
+    public void put(String isbn, String title, long sequence) {
+        String key = normalize(title);
+        lock.writeLock().lock();
+        try {
+            if (!writeOrder.put(isbn, sequence)) {
+                return;
+            }
+            String oldKey = keysByIsbn.get(isbn);
+            if (key.equals(oldKey)) {
+                //the same entry, but a case or punctuation edit still changes what it shows
+                descend(key, new ArrayList<>(), false).terminal.display = title;
+                return;
+            }
+            if (oldKey != null) {
+                decrement(isbn, oldKey);
+            }
+            if (!key.isEmpty()) {
+                keysByIsbn.put(isbn, key);
+                List<Node> path = new ArrayList<>();
+                addTitle(descend(key, path, true), key, title, reads(isbn));
+                recomputePath(path);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String isbn, long sequence) {
+        lock.writeLock().lock();
+        try {
+            if (!writeOrder.remove(isbn, sequence)) {
+                return;
+            }
+            String oldKey = keysByIsbn.get(isbn);
+            if (oldKey != null) {
+                decrement(isbn, oldKey);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // the recent read counts of the most read isbns, replacing the ones before. Isbns left out count
+    // as unread. Only the titles whose reads moved are re-ranked
+    public void rank(Map<String, Long> readsByIsbn) {
+        lock.writeLock().lock();
+        try {
+            Set<String> isbns = new HashSet<>(this.readsByIsbn.keySet());
+            isbns.addAll(readsByIsbn.keySet());
+            Set<String> movedKeys = new HashSet<>();
+            for (String isbn : isbns) {
+                long delta = readsByIsbn.getOrDefault(isbn, 0L) - reads(isbn);
+                String key = keysByIsbn.get(isbn);
+                if (delta != 0 && key != null) {
+                    descend(key, new ArrayList<>(), false).terminal.reads += delta;
+                    movedKeys.add(key);
+                }
+            }
+            this.readsByIsbn = new HashMap<>(readsByIsbn);
+            for (String key : movedKeys) {
+                List<Node> path = new ArrayList<>();
+                descend(key, path, false);
+                recomputePath(path);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<String> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        if (!Character.isLetterOrDigit(prefix.charAt(prefix.length() - 1))) {
+            key = key + " "; //"the " should not complete to "theory"
+        }
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            int i = 0;
+            while (i < key.length()) {
+                Node child = child(node, key.charAt(i));
+                if (child == null) {
+                    return List.of();
+                }
+                int common = commonPrefixLength(child.label, key, i);
+                if (common < child.label.length() && i + common < key.length()) {
+                    return List.of(); //diverges inside the edge
+                }
+                node = child;
+                i += common;
+            }
+            List<String> suggestions = new ArrayList<>(Math.min(limit, node.top.length));
+            for (int j = 0; j < node.top.length && j < limit; j++) {
+                suggestions.add(node.top[j].display);
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void decrement(String isbn, String key) {
+        keysByIsbn.remove(isbn);
+        List<Node> path = new ArrayList<>();
+        Node node = descend(key, path, false);
+        if (node == null || node.terminal == null) {
+            return;
+        }
+        node.terminal.reads -= reads(isbn);
+        if (--node.terminal.count == 0) {
+            node.terminal = null;
+            prune(path);
+        }
+        recomputePath(path);
+    }
+
+    //walks (and with create, builds) the path for key; path receives root..node
+    private Node descend(String key, List<Node> path, boolean create) {
+        Node node = root;
+        path.add(node);
+        int i = 0;
+        while (i < key.length()) {
+            Node child = child(node, key.charAt(i));
+            if (child == null) {
+                if (!create) {
+                    return null;
+                }
+                child = new Node(key.substring(i));
+                addChild(node, child);
+                path.add(child);
+                return child;
+            }
+            int common = commonPrefixLength(child.label, key, i);
+            if (common < child.label.length()) {
+                if (!create) {
+                    return null;
+                }
+                //split the edge, the new middle node takes over the child's place
+                Node middle = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.children = new Node[]{child};
+                middle.top = child.top;
+                replaceChild(node, child, middle);
+                child = middle;
+            }
+            path.add(child);
+            node = child;
+            i += common;
+        }
+        return node;
+    }
+
+    //drops nodes left without a title or children and folds single-child nodes into their child
+    private void prune(List<Node> path) {
+        for (int i = path.size() - 1; i > 0; i--) {
+            Node node = path.get(i);
+            Node parent = path.get(i - 1);
+            if (node.terminal != null) {
+                return;
+            }
+            if (node.children.length == 0) {
+                removeChild(parent, node);
+                path.remove(i);
+            } else if (node.children.length == 1) {
+                Node only = node.children[0];
+                only.label = node.label + only.label;
+                replaceChild(parent, node, only);
+                path.set(i, only);
+                return;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void recomputePath(List<Node> path) {
+        for (int i = path.size() - 1; i >= 0; i--) {
+            recompute(path.get(i));
+        }
+    }
+
+    private void recomputeAll(Node node) {
+        for (Node child : node.children) {
+            recomputeAll(child);
+        }
+        recompute(node);
+    }
+
+    //the top N of a subtree is the top N of its terminal and its children's top lists
+    private void recompute(Node node) {
+        PriorityQueue<TitleEntry> candidates = new PriorityQueue<>(BEST_FIRST);
+        if (node.terminal != null) {
+            candidates.add(node.terminal);
+        }
+        for (Node child : node.children) {
+            candidates.addAll(Arrays.asList(child.top));
+        }
+        TitleEntry[] top = new TitleEntry[Math.min(topN, candidates.size())];
+        for (int i = 0; i < top.length; i++) {
+            top[i] = candidates.poll();
+        }
+        node.top = top;
+    }
+
+    private long reads(String isbn) {
+        return readsByIsbn.getOrDefault(isbn, 0L);
+    }
+
+    private static void addTitle(Node node, String key, String title, long reads) {
+        if (node.terminal == null) {
+            node.terminal = new TitleEntry(key, title);
+        }
+        node.terminal.display = title;
+        node.terminal.count++;
+        node.terminal.reads += reads;
+    }
+
+    private static Node child(Node node, char first) {
+        Node[] children = node.children;
+        int low = 0;
+        int high = children.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midFirst = children[mid].label.charAt(0);
+            if (midFirst < first) {
+                low = mid + 1;
+            } else if (midFirst > first) {
+                high = mid - 1;
+            } else {
+                return children[mid];
+            }
+        }
+        return null;
+    }
+
+    private static void addChild(Node node, Node child) {
+        Node[] children = Arrays.copyOf(node.children, node.children.length + 1);
+        int i = children.length - 1;
+        while (i > 0 && children[i - 1].label.charAt(0) > child.label.charAt(0)) {
+            children[i] = children[i - 1];
+            i--;
+        }
+        children[i] = child;
+        node.children = children;
+    }
+
+    //the replacement starts with the same char, so the order is kept
+    private static void replaceChild(Node node, Node child, Node replacement) {
+        for (int i = 0; i < node.children.length; i++) {
+            if (node.children[i] == child) {
+                node.children[i] = replacement;
+                return;
+            }
+        }
+    }
+
+    private static void removeChild(Node node, Node child) {
+        List<Node> children = new ArrayList<>(Arrays.asList(node.children));
+        children.remove(child);
+        node.children = children.isEmpty() ? NO_CHILDREN : children.toArray(NO_CHILDREN);
+    }
+
+    private static int commonPrefixLength(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static String normalize(String text) {
+        return String.join(" ", BookSearchIndex.tokenize(text));
+    }
+}
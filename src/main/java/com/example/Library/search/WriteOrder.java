@@ -0,0 +1,82 @@
+package com.example.Library.search;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Last applied write per key (isbn or author id) for one in-memory index. Writes reach the
+ * indexes after their transaction commits, so two writers of the same row can arrive in the
+ * opposite order. Each carries the sequence it took while holding the row's lock, which
+ * follows the commit order, and a write at or below the last one applied is dropped.
+ * <p>
+ * A delete's sequence stays behind as a tombstone, so a put that committed before the delete
+ * cannot bring the row back however late it comes. Row versions cannot serve here: a book
+ * created again after a delete starts over at version 0. Entries at or below
+ * {@link WriteSequences#settled} are pruned once the map has doubled since the last pruning:
+ * every write older than them has arrived, and every later one is admitted anyway.
+ * <p>
+ * Not thread safe, callers hold their index's write lock.
+ */
+final class WriteOrder<K> {
+
+    private static final int MIN_PRUNE_SIZE = 1024;
+
+    private final Map<K, Long> sequences = new HashMap<>();
+    private final WriteSequences writeSequences;
+    private final Consumer<K> pruned;
+    private int pruneAt = MIN_PRUNE_SIZE;
+
+    WriteOrder(WriteSequences writeSequences) {
+        this(writeSequences, key -> {
+        });
+    }
+
+    //pruned is told of every key that goes, for state kept along with the entry
+    WriteOrder(WriteSequences writeSequences, Consumer<K> pruned) {
+        this.writeSequences = writeSequences;
+        this.pruned = pruned;
+    }
+
+    boolean put(K key, long sequence) {
+        return admit(key, sequence);
+    }
+
+    boolean remove(K key, long sequence) {
+        return admit(key, sequence);
+    }
+
+    //a rebuild reads committed rows, so every write applied before it is in it
+    void clear() {
+        sequences.clear();
+        pruneAt = MIN_PRUNE_SIZE;
+    }
+
+    int size() {
+        return sequences.size();
+    }
+
+    private boolean admit(K key, long sequence) {
+        Long applied = sequences.get(key);
+        if (applied != null && sequence <= applied) {
+            return false;
+        }
+        sequences.put(key, sequence);
+        if (sequences.size() >= pruneAt) {
+            prune();
+        }
+        return true;
+    }
+
+    private void prune() {
+        long settled = writeSequences.settled();
+        sequences.entrySet().removeIf(entry -> {
+            if (entry.getValue() > settled) {
+                return false;
+            }
+            pruned.accept(entry.getKey());
+            return true;
+        });
+        pruneAt = Math.max(MIN_PRUNE_SIZE, 2 * sequences.size());
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.Library.search;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.TreeSet;
+
+/**
+ * The sequence numbers that order writes in the in-memory indexes, see {@link WriteOrder}.
+ * A writer takes one inside its transaction, once it holds the locks of the rows it wrote,
+ * and hands it back with {@link #completed} after every index has applied the write. A
+ * transaction that does not commit hands it back itself. Book and author writes share one
+ * counter, as a book write carries its author too.
+ * <p>
+ * Everything at or below {@link #settled} has reached the indexes or never will, so no write
+ * still on its way can be older than an entry there, and the entries can go.
+ */
+@Component
+public class WriteSequences {
+
+    private final TreeSet<Long> inFlight = new TreeSet<>();
+    private long last;
+
+    public long next() {
+        long sequence;
+        synchronized (this) {
+            sequence = ++last;
+            inFlight.add(sequence);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        completed(sequence); //the write will never reach the indexes
+                    }
+                }
+            });
+        }
+        return sequence;
+    }
+
+    //no-op for a sequence that was never taken (0) or was already handed back
+    public synchronized void completed(long sequence) {
+        inFlight.remove(sequence);
+    }
+
+    //the highest sequence with none at or below it still in flight
+    synchronized long settled() {
+        return inFlight.isEmpty() ? last : inFlight.first() - 1;
+    }
+}
@@ -0,0 +1,384 @@
+package com.example.Library.snapshot;
+
+import com.example.Library.domain.DTO.AuthorDTO;
+import com.example.Library.domain.DTO.BookDTO;
+import com.example.Library.domain.Entities.AuthorEntity;
+import com.example.Library.domain.Entities.BookEntity;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The whole catalog as parallel arrays: books sorted by isbn, authors sorted by id, a
+ * book's author as an index into the author arrays, and equal strings stored once.
+ * Lookups are binary searches; DTOs (and the transient entities the listing mappers
+ * expect) are created per call and never kept. Immutable, so readers need no locking
+ * and a refresh replaces the whole snapshot.
+ * <p>
+ * Title order is Java string order, which can differ from the database collation.
+ */
+public final class CatalogSnapshot {
+
+    private static final int NO_AUTHOR = -1;
+    private static final int NO_AGE = Integer.MIN_VALUE;
+    private static final long NO_VERSION = Long.MIN_VALUE;
+
+    private static final int REFERENCE_BYTES = 4;
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int STRING_BYTES = 24 + ARRAY_HEADER_BYTES; //the String and its byte[]
+
+    private final long[] authorIds;
+    private final String[] authorNames;
+    private final int[] authorAges;
+    private final long[] authorVersions;
+    private final int[] authorBookCounts;
+
+    private final String[] isbns;
+    private final String[] titles;
+    private final long[] bookVersions;
+    private final int[] bookAuthors;
+
+    private final int[] byTitle; //book indexes by (title, isbn), books without a title left out like the keyset query does
+    private final int[] byAuthor; //book indexes by (author, isbn), books without an author left out
+    private final int[] authorBookStarts; //the books of author a are byAuthor[authorBookStarts[a]..authorBookStarts[a + 1])
+
+    private final long estimatedBytes;
+
+    private CatalogSnapshot(Builder builder) {
+        int authorCount = builder.authors.size();
+        Integer[] authorOrder = sortedIndexes(authorCount, Comparator.comparingLong(i -> builder.authors.get(i).getId()));
+        authorIds = new long[authorCount];
+        authorNames = new String[authorCount];
+        authorAges = new int[authorCount];
+        authorVersions = new long[authorCount];
+        authorBookCounts = new int[authorCount];
+        for (int i = 0; i < authorCount; i++) {
+            AuthorEntity author = builder.authors.get(authorOrder[i]);
+            authorIds[i] = author.getId();
+            authorNames[i] = author.getName();
+            authorAges[i] = author.getAge() != null ? author.getAge() : NO_AGE;
+            authorVersions[i] = author.getVersion() != null ? author.getVersion() : NO_VERSION;
+            authorBookCounts[i] = author.getBookCount() != null ? author.getBookCount() : 0;
+        }
+
+        int bookCount = builder.isbns.size();
+        Integer[] bookOrder = sortedIndexes(bookCount, Comparator.comparing(builder.isbns::get));
+        isbns = new String[bookCount];
+        titles = new String[bookCount];
+        bookVersions = new long[bookCount];
+        bookAuthors = new int[bookCount];
+        int[] authoredBooks = new int[authorCount];
+        int titledBooks = 0;
+        for (int i = 0; i < bookCount; i++) {
+            int book = bookOrder[i];
+            isbns[i] = builder.isbns.get(book);
+            titles[i] = builder.titles.get(book);
+            bookVersions[i] = builder.bookVersions.get(book) != null ? builder.bookVersions.get(book) : NO_VERSION;
+            Long authorId = builder.bookAuthorIds.get(book);
+            bookAuthors[i] = authorId != null ? Math.max(NO_AUTHOR, Arrays.binarySearch(authorIds, authorId)) : NO_AUTHOR;
+            if (bookAuthors[i] != NO_AUTHOR) {
+                authoredBooks[bookAuthors[i]]++;
+            }
+            if (titles[i] != null) {
+                titledBooks++;
+            }
+        }
+
+        Integer[] titled = new Integer[titledBooks];
+        for (int i = 0, next = 0; i < bookCount; i++) {
+            if (titles[i] != null) {
+                titled[next++] = i;
+            }
+        }
+        Arrays.sort(titled, Comparator.comparing(i -> titles[i])); //stable, and the books already are in isbn order
+        byTitle = Arrays.stream(titled).mapToInt(Integer::intValue).toArray();
+
+        authorBookStarts = new int[authorCount + 1];
+        for (int a = 0; a < authorCount; a++) {
+            authorBookStarts[a + 1] = authorBookStarts[a] + authoredBooks[a];
+        }
+        byAuthor = new int[authorBookStarts[authorCount]];
+        int[] next = Arrays.copyOf(authorBookStarts, authorCount);
+        for (int i = 0; i < bookCount; i++) { //in isbn order, so every author's range ends up sorted by isbn
+            if (bookAuthors[i] != NO_AUTHOR) {
+                byAuthor[next[bookAuthors[i]]++] = i;
+            }
+        }
+
+        estimatedBytes = builder.stringBytes
+                + arrayBytes(authorCount, Long.BYTES * 2 + Integer.BYTES * 2 + REFERENCE_BYTES)
+                + arrayBytes(bookCount, Long.BYTES + Integer.BYTES + REFERENCE_BYTES * 2)
+                + arrayBytes(byTitle.length + byAuthor.length + authorBookStarts.length, Integer.BYTES);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int getBookCount() {
+        return isbns.length;
+    }
+
+    public int getAuthorCount() {
+        return authorIds.length;
+    }
+
+    //arrays and distinct strings, with compressed references and compact strings
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    public Optional<BookDTO> findBook(String isbn) {
+        int book = Arrays.binarySearch(isbns, isbn);
+        return book >= 0 ? Optional.of(bookDTO(book)) : Optional.empty();
+    }
+
+    public Map<String, BookDTO> findBooks(Collection<String> isbns) {
+        Map<String, BookDTO> books = new LinkedHashMap<>();
+        for (String isbn : isbns) {
+            findBook(isbn).ifPresent(book -> books.put(isbn, book));
+        }
+        return books;
+    }
+
+    public Optional<AuthorDTO> findAuthor(Long id) {
+        int author = Arrays.binarySearch(authorIds, id);
+        return author >= 0 ? Optional.of(authorDTO(author)) : Optional.empty();
+    }
+
+    public Map<Long, AuthorDTO> findAuthors(Collection<Long> ids) {
+        Map<Long, AuthorDTO> authors = new LinkedHashMap<>();
+        for (Long id : ids) {
+            findAuthor(id).ifPresent(author -> authors.put(id, author));
+        }
+        return authors;
+    }
+
+    public List<AuthorEntity> authors() {
+        List<AuthorEntity> authors = new ArrayList<>(authorIds.length);
+        for (int author = 0; author < authorIds.length; author++) {
+            authors.add(authorEntity(author));
+        }
+        return authors;
+    }
+
+    //null for sorts other than by isbn, the caller asks the database instead
+    public Page<BookDTO> page(Pageable pageable) {
+        List<BookDTO> content = pageContent(pageable);
+        return content != null ? new PageImpl<>(content, pageable, isbns.length) : null;
+    }
+
+    public Slice<BookDTO> slice(Pageable pageable) {
+        List<BookDTO> content = pageContent(pageable);
+        return content != null ? new SliceImpl<>(content, pageable, pageable.isPaged() && pageable.getOffset() + pageable.getPageSize() < isbns.length) : null;
+    }
+
+    private List<BookDTO> pageContent(Pageable pageable) {
+        Sort.Order isbnOrder = pageable.getSort().getOrderFor("isbn");
+        if (pageable.getSort().isSorted() && (isbnOrder == null || pageable.getSort().stream().count() > 1)) {
+            return null;
+        }
+        boolean descending = isbnOrder != null && isbnOrder.isDescending();
+        int from = (int) Math.min(pageable.isPaged() ? pageable.getOffset() : 0, isbns.length);
+        int to = pageable.isPaged() ? (int) Math.min((long) from + pageable.getPageSize(), isbns.length) : isbns.length;
+        List<BookDTO> content = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            content.add(bookDTO(descending ? isbns.length - 1 - i : i));
+        }
+        return content;
+    }
+
+    //the same keyset pages as BookService.findAllAfter
+    public List<BookEntity> booksAfter(String sortProperty, BookEntity after, int limit) {
+        List<BookEntity> books = new ArrayList<>(Math.min(limit, isbns.length));
+        switch (sortProperty) {
+            case "isbn" -> {
+                int from = after == null ? 0 : indexAfter(Arrays.binarySearch(isbns, after.getIsbn()));
+                for (int book = from; book < isbns.length && books.size() < limit; book++) {
+                    books.add(bookEntity(book));
+                }
+            }
+            case "title" -> {
+                int from = after == null ? 0 : firstByTitleAfter(after.getTitle(), after.getIsbn());
+                for (int i = from; i < byTitle.length && books.size() < limit; i++) {
+                    books.add(bookEntity(byTitle[i]));
+                }
+            }
+            default -> throw new IllegalArgumentException("Unsupported keyset sort: " + sortProperty);
+        }
+        return books;
+    }
+
+    public List<BookEntity> booksByAuthorAfter(Long authorId, String afterIsbn, int limit) {
+        int author = Arrays.binarySearch(authorIds, authorId);
+        if (author < 0) {
+            return List.of();
+        }
+        int from = authorBookStarts[author];
+        int to = authorBookStarts[author + 1];
+        if (afterIsbn != null) {
+            int low = from;
+            int high = to;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (isbns[byAuthor[mid]].compareTo(afterIsbn) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            from = low;
+        }
+        List<BookEntity> books = new ArrayList<>(Math.min(limit, to - from));
+        for (int i = from; i < to && books.size() < limit; i++) {
+            books.add(bookEntity(byAuthor[i]));
+        }
+        return books;
+    }
+
+    private int firstByTitleAfter(String title, String isbn) {
+        int low = 0;
+        int high = byTitle.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int book = byTitle[mid];
+            int order = titles[book].compareTo(title);
+            if (order < 0 || (order == 0 && isbns[book].compareTo(isbn) <= 0)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    //first index past the key, from an Arrays.binarySearch result
+    private static int indexAfter(int searchResult) {
+        return searchResult >= 0 ? searchResult + 1 : -searchResult - 1;
+    }
+
+    private BookDTO bookDTO(int book) {
+        int author = bookAuthors[book];
+        return BookDTO.builder()
+                .isbn(isbns[book])
+                .title(titles[book])
+                .version(version(bookVersions[book]))
+                .authorEntity(author != NO_AUTHOR ? bookAuthorDTO(author) : null)
+                .build();
+    }
+
+    //books embed their author without the book count, see ETags
+    private AuthorDTO bookAuthorDTO(int author) {
+        return new AuthorDTO(authorIds[author], authorNames[author], age(authorAges[author]), version(authorVersions[author]), null);
+    }
+
+    private AuthorDTO authorDTO(int author) {
+        return new AuthorDTO(authorIds[author], authorNames[author], age(authorAges[author]), version(authorVersions[author]), authorBookCounts[author]);
+    }
+
+    private BookEntity bookEntity(int book) {
+        int author = bookAuthors[book];
+        return BookEntity.builder()
+                .isbn(isbns[book])
+                .title(titles[book])
+                .version(version(bookVersions[book]))
+                .authorEntity(author != NO_AUTHOR ? authorEntity(author) : null)
+                .build();
+    }
+
+    private AuthorEntity authorEntity(int author) {
+        return AuthorEntity.builder()
+                .id(authorIds[author])
+                .name(authorNames[author])
+                .age(age(authorAges[author]))
+                .version(version(authorVersions[author]))
+                .bookCount(authorBookCounts[author])
+                .build();
+    }
+
+    private static Integer age(int age) {
+        return age != NO_AGE ? age : null;
+    }
+
+    private static Long version(long version) {
+        return version != NO_VERSION ? version : null;
+    }
+
+    private static Integer[] sortedIndexes(int size, Comparator<Integer> order) {
+        Integer[] indexes = new Integer[size];
+        Arrays.setAll(indexes, i -> i);
+        Arrays.sort(indexes, order);
+        return indexes;
+    }
+
+    private static long arrayBytes(long length, int elementBytes) {
+        return ARRAY_HEADER_BYTES + length * elementBytes;
+    }
+
+    /**
+     * Collects rows in any order; nothing but the values read here is kept from the
+     * entities, so they can be detached as soon as they were added.
+     */
+    public static final class Builder {
+
+        private final List<AuthorEntity> authors = new ArrayList<>();
+        private final List<String> isbns = new ArrayList<>();
+        private final List<String> titles = new ArrayList<>();
+        private final List<Long> bookVersions = new ArrayList<>();
+        private final List<Long> bookAuthorIds = new ArrayList<>();
+        private final Map<String, String> strings = new HashMap<>();
+        private long stringBytes;
+
+        private Builder() {
+        }
+
+        public Builder author(AuthorEntity author) {
+            authors.add(AuthorEntity.builder()
+                    .id(author.getId())
+                    .name(intern(author.getName()))
+                    .age(author.getAge())
+                    .version(author.getVersion())
+                    .bookCount(author.getBookCount())
+                    .build());
+            return this;
+        }
+
+        public Builder book(BookEntity book) {
+            isbns.add(intern(book.getIsbn()));
+            titles.add(intern(book.getTitle()));
+            bookVersions.add(book.getVersion());
+            bookAuthorIds.add(book.getAuthorEntity() != null ? book.getAuthorEntity().getId() : null);
+            return this;
+        }
+
+        public CatalogSnapshot build() {
+            return new CatalogSnapshot(this);
+        }
+
+        //one copy per distinct value, held only by the snapshot rather than the JVM-wide String.intern pool
+        private String intern(String value) {
+            if (value == null) {
+                return null;
+            }
+            String interned = strings.putIfAbsent(value, value);
+            if (interned != null) {
+                return interned;
+            }
+            stringBytes += STRING_BYTES + (long) value.length() * (value.chars().allMatch(c -> c < 256) ? 1 : 2);
+            return value;
+        }
+    }
+}
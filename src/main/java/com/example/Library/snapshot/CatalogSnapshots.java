@@ -0,0 +1,124 @@
+package com.example.Library.snapshot;
+
+import com.example.Library.domain.Entities.AuthorEntity;
+import com.example.Library.domain.Entities.BookEntity;
+import com.example.Library.repositories.AuthorRepository;
+import com.example.Library.repositories.BookRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Read-only catalog mode: the services answer their reads from a {@link CatalogSnapshot}
+ * of both tables, loaded before the web server starts and rebuilt every
+ * {@code library.snapshot.refresh}. A rebuild streams the tables into a new snapshot and
+ * swaps it in whole, readers keep whichever one they started with. Writes still go to
+ * the database and show up with the next rebuild.
+ */
+@Component
+@ConditionalOnProperty(name = "library.snapshot.enabled", havingValue = "true")
+public class CatalogSnapshots implements SmartInitializingSingleton, DisposableBean, MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogSnapshots.class);
+
+    private BookRepository bookRepository;
+
+    private AuthorRepository authorRepository;
+
+    private EntityManager entityManager;
+
+    private TransactionTemplate readOnlyTransactionTemplate;
+
+    private Duration refresh;
+
+    private volatile CatalogSnapshot current;
+
+    private ScheduledExecutorService refresher;
+
+    public CatalogSnapshots(BookRepository bookRepository,
+                            AuthorRepository authorRepository,
+                            EntityManager entityManager,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${library.snapshot.refresh:5m}") Duration refresh) {
+        this.bookRepository = bookRepository;
+        this.authorRepository = authorRepository;
+        this.entityManager = entityManager;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        //both tables from one database snapshot, so book counts match the books
+        this.readOnlyTransactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.refresh = refresh;
+    }
+
+    //null until the first load, the services read from the database meanwhile
+    public CatalogSnapshot current() {
+        return current;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+        refresher = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("catalog-snapshot").daemon().factory());
+        refresher.scheduleWithFixedDelay(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.warn("Catalog snapshot refresh failed, still serving the one from before", e);
+            }
+        }, refresh.toMillis(), refresh.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void rebuild() {
+        CatalogSnapshot.Builder builder = CatalogSnapshot.builder();
+        readOnlyTransactionTemplate.executeWithoutResult(status -> {
+            try (Stream<AuthorEntity> authors = authorRepository.streamAll()) {
+                authors.forEach(author -> {
+                    builder.author(author);
+                    entityManager.detach(author);
+                });
+            }
+            try (Stream<BookEntity> books = bookRepository.streamAll()) {
+                books.forEach(book -> {
+                    builder.book(book);
+                    entityManager.detach(book);
+                });
+            }
+        });
+        current = builder.build();
+    }
+
+    @Override
+    public void destroy() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("library.snapshot.books", this, snapshots -> snapshots.current != null ? snapshots.current.getBookCount() : 0)
+                .description("Books in the catalog snapshot")
+                .register(registry);
+        Gauge.builder("library.snapshot.size", this, snapshots -> snapshots.current != null ? snapshots.current.getEstimatedBytes() : 0)
+                .description("Estimated heap held by the catalog snapshot")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+}
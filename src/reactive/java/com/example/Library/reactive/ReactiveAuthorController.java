@@ -0,0 +1,33 @@
+package com.example.Library.reactive;
+
+import com.example.Library.domain.DTO.AuthorDTO;
+import com.example.Library.domain.Entities.AuthorEntity;
+import com.example.Library.mappers.Mapper;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+@RestController
+@Profile("reactive")
+public class ReactiveAuthorController {
+
+    private ReactiveAuthorRepository authorRepository;
+
+    private Mapper<AuthorEntity, AuthorDTO> authorMapper;
+
+    public ReactiveAuthorController(ReactiveAuthorRepository authorRepository, Mapper<AuthorEntity, AuthorDTO> authorMapper) {
+        this.authorRepository = authorRepository;
+        this.authorMapper = authorMapper;
+    }
+
+    @GetMapping(path = "/authors/{id}")
+    public Mono<ResponseEntity<AuthorDTO>> getAuthor(@PathVariable("id") Long id) {
+        return authorRepository.findById(id)
+                .map(authorEntity -> ResponseEntity.ok(authorMapper.mapTo(authorEntity)))
+                .defaultIfEmpty(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.Library.reactive;
+
+import com.example.Library.domain.Entities.AuthorEntity;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+@Repository
+@Profile("reactive")
+public class ReactiveAuthorRepository {
+
+    private DatabaseClient databaseClient;
+
+    public ReactiveAuthorRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<AuthorEntity> findById(Long id) {
+        return databaseClient.sql("SELECT id, name, age, version, book_count FROM authors WHERE id = :id")
+                .bind("id", id)
+                .map((row, metadata) -> AuthorEntity.builder()
+                        .id(row.get("id", Long.class))
+                        .name(row.get("name", String.class))
+                        .age(row.get("age", Integer.class))
+                        .version(row.get("version", Long.class))
+                        .bookCount(row.get("book_count", Integer.class))
+                        .build())
+                .one();
+    }
+}
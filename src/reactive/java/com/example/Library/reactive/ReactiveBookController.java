@@ -0,0 +1,63 @@
+package com.example.Library.reactive;
+
+import com.example.Library.domain.DTO.BookDTO;
+import com.example.Library.domain.Entities.BookEntity;
+import com.example.Library.mappers.Mapper;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+@Profile("reactive")
+public class ReactiveBookController {
+
+    //rows are requested from the driver in batches of this size as the client drains the response
+    private static final int STREAM_PREFETCH = 256;
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private ReactiveBookRepository bookRepository;
+
+    private Mapper<BookEntity, BookDTO> bookMapper;
+
+    public ReactiveBookController(ReactiveBookRepository bookRepository, Mapper<BookEntity, BookDTO> bookMapper) {
+        this.bookRepository = bookRepository;
+        this.bookMapper = bookMapper;
+    }
+
+    //pages are always ordered by isbn
+    @GetMapping(path = "/books")
+    public Mono<ResponseEntity<Page<BookDTO>>> listBooks(@RequestParam(name = "page", defaultValue = "0") int page,
+                                                         @RequestParam(name = "size", defaultValue = "20") int size) {
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            return Mono.just(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        }
+        PageRequest pageRequest = PageRequest.of(page, size);
+        return Mono.zip(bookRepository.findPage(size, pageRequest.getOffset()).map(bookMapper::mapTo).collectList(), bookRepository.count())
+                .map(content -> ResponseEntity.ok(new PageImpl<>(content.getT1(), pageRequest, content.getT2())));
+    }
+
+    @GetMapping(path = "/books", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BookDTO> exportBooks() {
+        return bookRepository.findAll()
+                .limitRate(STREAM_PREFETCH)
+                .map(bookMapper::mapTo);
+    }
+
+    @GetMapping(path = "/books/{isbn}")
+    public Mono<ResponseEntity<BookDTO>> getBook(@PathVariable("isbn") String isbn) {
+        return bookRepository.findById(isbn)
+                .map(bookEntity -> ResponseEntity.ok(bookMapper.mapTo(bookEntity)))
+                .defaultIfEmpty(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.Library.reactive;
+
+import com.example.Library.domain.Entities.AuthorEntity;
+import com.example.Library.domain.Entities.BookEntity;
+import io.r2dbc.spi.Row;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reads books with their author in one statement, like the DTO projections of
+ * {@link com.example.Library.repositories.BookRepository}. Rows are turned into plain
+ * (unmanaged) entities so the existing {@code Mapper} implementations can be reused.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveBookRepository {
+
+    private static final String SELECT_BOOKS = "SELECT b.isbn, b.title, b.version, "
+            + "a.id AS author_id, a.name AS author_name, a.age AS author_age, a.version AS author_version, a.book_count AS author_book_count "
+            + "FROM books b LEFT JOIN authors a ON a.id = b.author_id";
+
+    private DatabaseClient databaseClient;
+
+    public ReactiveBookRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Flux<BookEntity> findAll() {
+        return databaseClient.sql(SELECT_BOOKS + " ORDER BY b.isbn")
+                .map((row, metadata) -> toBook(row))
+                .all();
+    }
+
+    public Flux<BookEntity> findPage(int size, long offset) {
+        return databaseClient.sql(SELECT_BOOKS + " ORDER BY b.isbn LIMIT :size OFFSET :offset")
+                .bind("size", size)
+                .bind("offset", offset)
+                .map((row, metadata) -> toBook(row))
+                .all();
+    }
+
+    public Mono<BookEntity> findById(String isbn) {
+        return databaseClient.sql(SELECT_BOOKS + " WHERE b.isbn = :isbn")
+                .bind("isbn", isbn)
+                .map((row, metadata) -> toBook(row))
+                .one();
+    }
+
+    public Mono<Long> count() {
+        return databaseClient.sql("SELECT COUNT(*) FROM books")
+                .map((row, metadata) -> row.get(0, Long.class))
+                .one();
+    }
+
+    private static BookEntity toBook(Row row) {
+        Long authorId = row.get("author_id", Long.class);
+        AuthorEntity author = authorId == null ? null : AuthorEntity.builder()
+                .id(authorId)
+                .name(row.get("author_name", String.class))
+                .age(row.get("author_age", Integer.class))
+                .version(row.get("author_version", Long.class))
+                .bookCount(row.get("author_book_count", Integer.class))
+                .build();
+        return BookEntity.builder()
+                .isbn(row.get("isbn", String.class))
+                .title(row.get("title", String.class))
+                .version(row.get("version", Long.class))
+                .authorEntity(author)
+                .build();
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.Library.reactive;
+
+import com.example.Library.config.MapperConfig;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Non-blocking read-only variant of the catalog on WebFlux and R2DBC. Only built with
+ * the {@code reactive} Maven profile and started with the {@code reactive} Spring
+ * profile, see {@code application-reactive.properties}. Reuses the DTOs and mappers of
+ * the servlet application against the same tables.
+ */
+@Profile("reactive")
+@SpringBootApplication(scanBasePackages = {"com.example.Library.reactive", "com.example.Library.mappers"})
+@Import(MapperConfig.class)
+public class ReactiveLibraryApplication {
+
+    public static void main(String[] args) {
+        new SpringApplicationBuilder(ReactiveLibraryApplication.class)
+                .profiles("reactive")
+                .run(args);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.Library.reactive;
+
+import com.example.Library.LibraryApplication;
+import com.example.Library.Services.AuthorService;
+import com.example.Library.Services.BookService;
+import com.example.Library.TestingUtil;
+import com.example.Library.domain.DTO.BookDTO;
+import com.example.Library.domain.Entities.AuthorEntity;
+import com.example.Library.domain.Entities.BookEntity;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.UUID;
+
+/**
+ * Seeds an in-memory H2 database through the blocking services and reads it back
+ * through the reactive application, so both stacks see the same schema and data.
+ */
+public class ReactiveReadPathIntegrationTests {
+
+    private static ConfigurableApplicationContext servletContext;
+    private static ConfigurableApplicationContext reactiveContext;
+    private static WebTestClient webTestClient;
+    private static AuthorEntity savedAuthor;
+
+    @BeforeAll
+    public static void startBothApplications() {
+        String database = "reactive-" + UUID.randomUUID();
+        servletContext = new SpringApplicationBuilder(LibraryApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=");
+        AuthorService authorService = servletContext.getBean(AuthorService.class);
+        BookService bookService = servletContext.getBean(BookService.class);
+        savedAuthor = authorService.save(TestingUtil.createTestAuthorA());
+        BookEntity bookA = TestingUtil.createTestBookEntityA(savedAuthor);
+        bookService.createUpdateBook(bookA.getIsbn(), bookA);
+        BookEntity bookB = TestingUtil.createTestBookB(savedAuthor);
+        bookService.createUpdateBook(bookB.getIsbn(), bookB);
+
+        reactiveContext = new SpringApplicationBuilder(ReactiveLibraryApplication.class)
+                .profiles("reactive")
+                .run("--server.port=0",
+                        "--spring.r2dbc.url=r2dbc:h2:mem:///" + database + ";DB_CLOSE_DELAY=-1",
+                        "--spring.r2dbc.username=sa",
+                        "--spring.r2dbc.password=");
+        webTestClient = WebTestClient.bindToApplicationContext(reactiveContext).build();
+    }
+
+    @AfterAll
+    public static void stopBothApplications() {
+        reactiveContext.close();
+        servletContext.close();
+    }
+
+    @Test
+    public void testThatGetBookReturnsBookWithAuthor() {
+        webTestClient.get().uri("/books/978-1-2345-6789-0").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.title").isEqualTo("The Shadow in the Attic")
+                .jsonPath("$.authorEntity.name").isEqualTo("Abigail Rose")
+                .jsonPath("$.version").isEqualTo(0);
+    }
+
+    @Test
+    public void testThatGetBookReturnsHttp404WhenNoBookExists() {
+        webTestClient.get().uri("/books/missing").exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    public void testThatListBooksReturnsPageOrderedByIsbn() {
+        webTestClient.get().uri("/books?page=0&size=1").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.content.length()").isEqualTo(1)
+                .jsonPath("$.content[0].isbn").isEqualTo("978-1-2345-6789-0")
+                .jsonPath("$.totalElements").isEqualTo(2);
+    }
+
+    @Test
+    public void testThatExportBooksStreamsNdjson() {
+        webTestClient.get().uri("/books").accept(MediaType.APPLICATION_NDJSON).exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(BookDTO.class).hasSize(2);
+    }
+
+    @Test
+    public void testThatGetAuthorReturnsAuthor() {
+        webTestClient.get().uri("/authors/" + savedAuthor.getId()).exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("Abigail Rose")
+                .jsonPath("$.age").isEqualTo(80);
+    }
+}
@@ -1,23 +1,36 @@
 package com.example.Library.Controllers;
 
 import com.example.Library.Services.AuthorService;
+import com.example.Library.Services.BookService;
 import com.example.Library.TestingUtil;
 import com.example.Library.domain.DTO.AuthorDTO;
 import com.example.Library.domain.Entities.AuthorEntity;
+import com.example.Library.domain.Entities.BookEntity;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+
 @SpringBootTest
 @ExtendWith(SpringExtension.class)
 @AutoConfigureMockMvc
@@ -25,13 +38,18 @@ import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 public class AuthorControllerIntegrationTest {
 
     private AuthorService authorService;
+    private BookService bookService;
+    private Statistics statistics;
     private MockMvc mockMvc;
     private ObjectMapper objectMapper;
 
     @Autowired
-    public AuthorControllerIntegrationTest(MockMvc mockMvc, AuthorService authorService) {
+    public AuthorControllerIntegrationTest(MockMvc mockMvc, AuthorService authorService, BookService bookService,
+                                            EntityManagerFactory entityManagerFactory) {
         this.mockMvc = mockMvc;
         this.authorService = authorService;
+        this.bookService = bookService;
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
         this.objectMapper = new ObjectMapper();
     }
 
@@ -207,4 +225,250 @@ public class AuthorControllerIntegrationTest {
         ).andExpect(MockMvcResultMatchers.status().isNoContent());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testThatBatchCreateAuthorsReturnsHttp200AndCreatedCount() throws Exception {
+        String authorsJson = objectMapper.writeValueAsString(List.of(
+                TestingUtil.createTestAuthorA(), TestingUtil.createTestAuthorB(), TestingUtil.createTestAuthorC()));
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/authors/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(authorsJson)
+        ).andExpect(MockMvcResultMatchers.status().isOk()
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.created").value(3));
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/authors")
+                        .contentType(MediaType.APPLICATION_JSON)
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(3)
+        ).andExpect(MockMvcResultMatchers.jsonPath("$[2].name").value("Adeline Rivers"));
+    }
+
+    @Test
+    public void testThatBatchCreateAuthorsReturnsHttp400ForMalformedJson() throws Exception {
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/authors/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"name\":\"Abigail Rose\",\"age\":80}, {\"name\":")
+        ).andExpect(MockMvcResultMatchers.status().isBadRequest()
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.created").value(0)); //one chunk, it never committed
+        mockMvc.perform(MockMvcRequestBuilders.get("/authors"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    public void testThatExportAuthorsStreamsOneJsonObjectPerLine() throws Exception {
+        authorService.save(TestingUtil.createTestAuthorA());
+        authorService.save(TestingUtil.createTestAuthorB());
+
+        MvcResult result = mockMvc.perform(
+                MockMvcRequestBuilders.get("/authors")
+                        .accept(MediaType.APPLICATION_NDJSON)
+        ).andExpect(MockMvcResultMatchers.request().asyncStarted()).andReturn();
+
+        MvcResult dispatched = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+        String[] lines = dispatched.getResponse().getContentAsString().split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readValue(lines[1], AuthorDTO.class).getName()).isEqualTo("Adam Parker");
+    }
+
+    @Test
+    public void testThatPartialUpdateKeepsFieldsThatAreNotSent() throws Exception {
+        AuthorEntity savedAuthorEntity = authorService.save(TestingUtil.createTestAuthorA());
+        mockMvc.perform(
+                MockMvcRequestBuilders.patch("/authors/" + savedAuthorEntity.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"age\":81}")
+        ).andExpect(MockMvcResultMatchers.status().isOk()
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.name").value("Abigail Rose")
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.age").value(81)
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.version").value(1));
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.patch("/authors/" + (savedAuthorEntity.getId() + 1000))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"age\":81}")
+        ).andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    @Test
+    public void testThatMultiGetAuthorsReturnsFoundAndMissingIds() throws Exception {
+        AuthorEntity savedAuthorA = authorService.save(TestingUtil.createTestAuthorA());
+        AuthorEntity savedAuthorB = authorService.save(TestingUtil.createTestAuthorB());
+        long missingId = savedAuthorB.getId() + 1000;
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/authors/_mget")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(savedAuthorB.getId(), missingId, savedAuthorA.getId())))
+        ).andExpect(MockMvcResultMatchers.status().isOk()
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.found[0].name").value("Adam Parker")
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.found[1].name").value("Abigail Rose")
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.missing[0]").value(missingId));
+    }
+
+    @Test
+    public void testThatListAuthorsIsServedFromTheQueryCacheUntilANativeWrite() throws Exception {
+        AuthorEntity savedAuthorA = authorService.save(TestingUtil.createTestAuthorA());
+        authorService.save(TestingUtil.createTestAuthorB());
+        mockMvc.perform(MockMvcRequestBuilders.get("/authors")).andExpect(MockMvcResultMatchers.status().isOk());
+
+        statistics.clear();
+        mockMvc.perform(MockMvcRequestBuilders.get("/authors"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[*].name").value(contains("Abigail Rose", "Adam Parker")));
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+
+        //PATCH and book writes update authors in native SQL, which Hibernate does not see
+        mockMvc.perform(
+                MockMvcRequestBuilders.patch("/authors/" + savedAuthorA.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Abigail R. Rose\"}")
+        ).andExpect(MockMvcResultMatchers.status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.get("/authors"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].name").value("Abigail R. Rose"));
+
+        BookEntity book = TestingUtil.createTestBookEntityA(AuthorEntity.builder().id(savedAuthorA.getId()).name("Abigail R. Rose").age(80).build());
+        bookService.createUpdateBook(book.getIsbn(), book);
+        mockMvc.perform(MockMvcRequestBuilders.get("/authors"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].bookCount").value(1));
+        assertThat(authorService.findOne(savedAuthorA.getId())).hasValueSatisfying(author -> assertThat(author.getBookCount()).isEqualTo(1));
+    }
+
+    @Test
+    public void testThatListAuthorBooksPagesByIsbnWithTheMaintainedCount() throws Exception {
+        AuthorEntity savedAuthor = authorService.save(TestingUtil.createTestAuthorA());
+        for (int i = 0; i < 3; i++) {
+            bookService.createUpdateBook("978-0-0000-0000-" + i, BookEntity.builder().title("Book " + i)
+                    .authorEntity(AuthorEntity.builder().id(savedAuthor.getId()).name("Abigail Rose").age(80).build()).build());
+        }
+        bookService.createUpdateBook("978-0-0000-0001-0", BookEntity.builder().title("Someone else's").build());
+
+        String nextCursor = JsonPath.read(mockMvc.perform(MockMvcRequestBuilders.get("/authors/" + savedAuthor.getId() + "/books?size=2"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[*].isbn").value(contains("978-0-0000-0000-0", "978-0-0000-0000-1")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.totalElements").value(3))
+                .andReturn().getResponse().getContentAsString(), "$.nextCursor");
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/authors/" + savedAuthor.getId() + "/books?size=2&cursor=" + nextCursor))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[*].isbn").value(contains("978-0-0000-0000-2")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor").doesNotExist());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/authors/" + (savedAuthor.getId() + 1000) + "/books"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    @Test
+    public void testThatBookCountFollowsBookWritesAndDeletes() throws Exception {
+        AuthorEntity savedAuthorA = authorService.save(TestingUtil.createTestAuthorA());
+        AuthorEntity savedAuthorB = authorService.save(TestingUtil.createTestAuthorB());
+        BookEntity book = TestingUtil.createTestBookEntityA(AuthorEntity.builder().id(savedAuthorA.getId()).name("Abigail Rose").age(80).build());
+        bookService.createUpdateBook(book.getIsbn(), book);
+        assertThat(authorService.findOneDTO(savedAuthorA.getId())).hasValueSatisfying(author -> assertThat(author.getBookCount()).isEqualTo(1));
+
+        //moving the book to another author, then renaming the author through PUT /authors, keeps both counts right
+        book.setAuthorEntity(AuthorEntity.builder().id(savedAuthorB.getId()).name("Adam Parker").age(36).build());
+        book.setVersion(null);
+        bookService.createUpdateBook(book.getIsbn(), book);
+        mockMvc.perform(
+                MockMvcRequestBuilders.put("/authors/" + savedAuthorB.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Adam P. Parker\",\"age\":36,\"bookCount\":99}")
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.bookCount").value(1));
+        assertThat(authorService.findOneDTO(savedAuthorA.getId())).hasValueSatisfying(author -> assertThat(author.getBookCount()).isZero());
+        assertThat(authorService.findOneDTO(savedAuthorB.getId())).hasValueSatisfying(author -> assertThat(author.getBookCount()).isEqualTo(1));
+
+        bookService.createUpdateBooks(List.of(BookEntity.builder().isbn("978-0-0000-0000-1").title("Batch")
+                .authorEntity(AuthorEntity.builder().id(savedAuthorB.getId()).name("Adam P. Parker").age(36).build()).build()).iterator());
+        assertThat(authorService.findOneDTO(savedAuthorB.getId())).hasValueSatisfying(author -> assertThat(author.getBookCount()).isEqualTo(2));
+
+        bookService.delete(book.getIsbn());
+        mockMvc.perform(MockMvcRequestBuilders.get("/authors/" + savedAuthorB.getId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.bookCount").value(1));
+    }
+
+    @Test
+    public void testThatABookWriteChangesTheAuthorETag() throws Exception {
+        AuthorEntity savedAuthorEntity = authorService.save(TestingUtil.createTestAuthorA());
+        String eTag = mockMvc.perform(MockMvcRequestBuilders.get("/authors/" + savedAuthorEntity.getId()))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        BookEntity book = TestingUtil.createTestBookEntityA(AuthorEntity.builder().id(savedAuthorEntity.getId()).name("Abigail Rose").age(80).build());
+        bookService.createUpdateBook(book.getIsbn(), book); //moves the count, the version stays
+
+        String newETag = mockMvc.perform(
+                MockMvcRequestBuilders.get("/authors/" + savedAuthorEntity.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag)
+        ).andExpect(MockMvcResultMatchers.status().isOk()
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.bookCount").value(1)
+        ).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(newETag).isNotEqualTo(eTag);
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/authors/" + savedAuthorEntity.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, newETag)
+        ).andExpect(MockMvcResultMatchers.status().isNotModified());
+    }
+
+    @Test
+    public void testThatPartialUpdateAuthorHonoursIfMatch() throws Exception {
+        AuthorEntity savedAuthorEntity = authorService.save(TestingUtil.createTestAuthorA());
+        String eTag = mockMvc.perform(MockMvcRequestBuilders.get("/authors/" + savedAuthorEntity.getId()))
+                .andExpect(MockMvcResultMatchers.header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/authors/" + savedAuthorEntity.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag)
+        ).andExpect(MockMvcResultMatchers.status().isNotModified());
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.patch("/authors/" + savedAuthorEntity.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, eTag)
+                        .content("{\"name\":\"Updated\"}")
+        ).andExpect(MockMvcResultMatchers.status().isOk());
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.patch("/authors/" + savedAuthorEntity.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, eTag)
+                        .content("{\"name\":\"Lost update\"}")
+        ).andExpect(MockMvcResultMatchers.status().isPreconditionFailed());
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/authors/" + savedAuthorEntity.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag)
+        ).andExpect(MockMvcResultMatchers.status().isOk()
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.name").value("Updated"));
+    }
+
+    @Test
+    public void testThatFullUpdateAuthorIsOneStatementThatKeepsTheBookCount() throws Exception {
+        AuthorEntity savedAuthorEntity = authorService.save(TestingUtil.createTestAuthorA());
+        String eTag = mockMvc.perform(MockMvcRequestBuilders.get("/authors/" + savedAuthorEntity.getId()))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        BookEntity book = TestingUtil.createTestBookEntityA(AuthorEntity.builder().id(savedAuthorEntity.getId()).name("Abigail Rose").age(80).build());
+        bookService.createUpdateBook(book.getIsbn(), book); //moves the count, the version stays
+
+        statistics.clear();
+        mockMvc.perform(
+                MockMvcRequestBuilders.put("/authors/" + savedAuthorEntity.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Updated\",\"age\":81}")
+        ).andExpect(MockMvcResultMatchers.status().isOk()
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.name").value("Updated")
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.bookCount").value(1));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.put("/authors/" + savedAuthorEntity.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, eTag)
+                        .content("{\"name\":\"Lost update\",\"age\":81}")
+        ).andExpect(MockMvcResultMatchers.status().isPreconditionFailed());
+        mockMvc.perform(MockMvcRequestBuilders.get("/authors/" + savedAuthorEntity.getId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.name").value("Updated"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.bookCount").value(1));
+    }
+}
@@ -2,23 +2,42 @@ package com.example.Library.Controllers;
 
 import com.example.Library.Services.BookService;
 import com.example.Library.TestingUtil;
+import com.example.Library.cache.ExistenceFilter;
+import com.example.Library.changes.ChangeLog;
 import com.example.Library.domain.DTO.BookDTO;
+import com.example.Library.domain.Entities.AuthorEntity;
 import com.example.Library.domain.Entities.BookEntity;
+import com.example.Library.repositories.BookRepository;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
-@SpringBootTest
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.not;
+
+@SpringBootTest(properties = {"spring.jpa.properties.hibernate.generate_statistics=true", "library.batch.chunk-size=2", "library.exists-filter.enabled=true"})
 @ExtendWith(SpringExtension.class)
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
 @AutoConfigureMockMvc
@@ -29,11 +48,30 @@ public class BookControllerIntegrationTests {
 
     private BookService bookService;
 
+    private Statistics statistics;
+
+    private MeterRegistry meterRegistry;
+
+    private ChangeLog changeLog;
+
+    private BookRepository bookRepository;
+
+    private ExistenceFilter existenceFilter;
+
+    private JdbcTemplate jdbcTemplate;
+
     @Autowired
-    public BookControllerIntegrationTests(MockMvc mockMvc, BookService bookService) {
+    public BookControllerIntegrationTests(MockMvc mockMvc, BookService bookService, EntityManagerFactory entityManagerFactory, MeterRegistry meterRegistry, ChangeLog changeLog,
+                                          BookRepository bookRepository, ExistenceFilter existenceFilter, JdbcTemplate jdbcTemplate) {
         this.mockMvc = mockMvc;
         this.objectMapper = new ObjectMapper();
         this.bookService = bookService;
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        this.meterRegistry = meterRegistry;
+        this.changeLog = changeLog;
+        this.bookRepository = bookRepository;
+        this.existenceFilter = existenceFilter;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
    /* @Test
@@ -66,6 +104,225 @@ public class BookControllerIntegrationTests {
         );
     }
 
+    @Test
+    public void testThatCreateBookForExistingAuthorReturnsHttpStatus201Created() throws Exception {
+        AuthorEntity testAuthorA = TestingUtil.createTestAuthorA();
+        testAuthorA.setId(null);
+        BookEntity savedBookA = bookService.createUpdateBook("978-1-2345-6789-0", TestingUtil.createTestBookEntityA(testAuthorA));
+        Long authorId = savedBookA.getAuthorEntity().getId();
+        BookEntity testBookB = TestingUtil.createTestBookB(AuthorEntity.builder().id(authorId).name("Abigail Rose").age(80).build());
+        mockMvc.perform(
+                MockMvcRequestBuilders.put("/books/" + testBookB.getIsbn())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(testBookB))
+        ).andExpect(
+                MockMvcResultMatchers.status().isCreated()
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.authorEntity.id").value(authorId)
+        );
+    }
+
+    @Test
+    public void testThatPutBookUpsertsInOneStatement() throws Exception {
+        BookDTO bookDTO = TestingUtil.createTestBookDtoA(null);
+        statistics.clear();
+        mockMvc.perform(
+                MockMvcRequestBuilders.put("/books/" + bookDTO.getIsbn())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(bookDTO))
+        ).andExpect(
+                MockMvcResultMatchers.status().isCreated()
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.version").value(0)
+        );
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        bookDTO.setTitle("UPDATED");
+        statistics.clear();
+        mockMvc.perform(
+                MockMvcRequestBuilders.put("/books/" + bookDTO.getIsbn())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(bookDTO))
+        ).andExpect(
+                MockMvcResultMatchers.status().isOk()
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.version").value(1)
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.title").value("UPDATED")
+        );
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(bookService.findOne(bookDTO.getIsbn())).hasValueSatisfying(book -> assertThat(book.getTitle()).isEqualTo("UPDATED"));
+    }
+
+    @Test
+    public void testThatPatchBookUpdatesInOneStatementAndReturnsItsAuthor() throws Exception {
+        BookEntity testBookEntityA = TestingUtil.createTestBookEntityA(TestingUtil.createTestAuthorA());
+        BookEntity savedBookEntity = bookService.createUpdateBook(testBookEntityA.getIsbn(), testBookEntityA);
+        statistics.clear();
+        mockMvc.perform(
+                MockMvcRequestBuilders.patch("/books/" + savedBookEntity.getIsbn())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"UPDATED\"}")
+        ).andExpect(
+                MockMvcResultMatchers.status().isOk()
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.title").value("UPDATED")
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.version").value(1)
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.authorEntity.name").value("Abigail Rose")
+        );
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        //same value again: nothing changed, so neither does the version
+        mockMvc.perform(
+                MockMvcRequestBuilders.patch("/books/" + savedBookEntity.getIsbn())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"UPDATED\"}")
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.version").value(1)
+        );
+
+        //no field set: only a read, nothing is announced
+        long lastSequence = changeLog.getLastSequence();
+        mockMvc.perform(
+                MockMvcRequestBuilders.patch("/books/" + savedBookEntity.getIsbn())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}")
+        ).andExpect(
+                MockMvcResultMatchers.status().isOk()
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.title").value("UPDATED")
+        );
+        assertThat(changeLog.getLastSequence()).isEqualTo(lastSequence);
+    }
+
+    @Test
+    public void testThatPatchMissingBookReturnsHttpStatus404() throws Exception {
+        mockMvc.perform(
+                MockMvcRequestBuilders.patch("/books/978-0-0000-0000-9")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"UPDATED\"}")
+        ).andExpect(
+                MockMvcResultMatchers.status().isNotFound()
+        );
+    }
+
+    @Test
+    public void testThatMultiGetBooksServesCacheHitsAndLoadsMissesInOneQuery() throws Exception {
+        BookEntity testBookEntityA = TestingUtil.createTestBookEntityA(TestingUtil.createTestAuthorA());
+        bookService.createUpdateBook(testBookEntityA.getIsbn(), testBookEntityA);
+        BookEntity testBookB = TestingUtil.createTestBookB(null);
+        bookService.createUpdateBook(testBookB.getIsbn(), testBookB);
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/" + testBookEntityA.getIsbn())); //now cached
+
+        statistics.clear();
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/books/_mget")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(testBookB.getIsbn(), "978-0-0000-0000-9", testBookEntityA.getIsbn(), testBookB.getIsbn())))
+        ).andExpect(
+                MockMvcResultMatchers.status().isOk()
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.found[*].isbn").value(contains(testBookB.getIsbn(), testBookEntityA.getIsbn()))
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.found[1].authorEntity.name").value("Abigail Rose")
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.missing").value(contains("978-0-0000-0000-9"))
+        );
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testThatUnknownIsbnsAreAnsweredWithoutAQuery() throws Exception {
+        BookEntity testBookEntityA = TestingUtil.createTestBookEntityA(TestingUtil.createTestAuthorA());
+        bookService.createUpdateBook(testBookEntityA.getIsbn(), testBookEntityA);
+
+        statistics.clear();
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/978-0-0000-0000-9")).andExpect(MockMvcResultMatchers.status().isNotFound());
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+
+        //writes always ask the database
+        mockMvc.perform(
+                MockMvcRequestBuilders.patch("/books/978-0-0000-0000-9")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"UPDATED\"}")
+        ).andExpect(MockMvcResultMatchers.status().isNotFound());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        //a deleted book is ruled out again once the filter that held it is no longer asked, the created one never was
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/" + testBookEntityA.getIsbn())).andExpect(MockMvcResultMatchers.status().isOk());
+        bookService.delete(testBookEntityA.getIsbn());
+        existenceFilter.rebuild();
+        existenceFilter.rebuild();
+        statistics.clear();
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/" + testBookEntityA.getIsbn())).andExpect(MockMvcResultMatchers.status().isNotFound());
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(meterRegistry.get("library.exists.filter.checks").tags("filter", "books", "result", "absent").functionCounter().count()).isEqualTo(2);
+    }
+
+    @Test
+    public void testThatRowsWrittenElsewhereAreFoundByWritesAndByReadsAfterARebuild() throws Exception {
+        jdbcTemplate.update("INSERT INTO authors (id, name, age, version, book_count) VALUES (1000, 'Written Elsewhere', 50, 0, 1)");
+        jdbcTemplate.update("INSERT INTO books (isbn, title, author_id, version) VALUES ('978-0-0000-0000-1', 'Elsewhere', 1000, 0)");
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/978-0-0000-0000-1")).andExpect(MockMvcResultMatchers.status().isNotFound());
+        mockMvc.perform(
+                MockMvcRequestBuilders.patch("/books/978-0-0000-0000-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"UPDATED\"}")
+        ).andExpect(MockMvcResultMatchers.status().isOk());
+        mockMvc.perform(
+                MockMvcRequestBuilders.put("/books/978-0-0000-0000-2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Also Elsewhere\",\"authorEntity\":{\"id\":1000,\"name\":\"Written Elsewhere\",\"age\":51}}")
+        ).andExpect(
+                MockMvcResultMatchers.status().isCreated()
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.authorEntity.id").value(1000)
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.authorEntity.bookCount").doesNotExist()
+        );
+        assertThat(jdbcTemplate.queryForObject("SELECT book_count FROM authors WHERE id = 1000", Integer.class)).isEqualTo(2);
+        mockMvc.perform(
+                MockMvcRequestBuilders.put("/authors/1000")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Written Elsewhere\",\"age\":52}")
+        ).andExpect(
+                MockMvcResultMatchers.status().isOk()
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.id").value(1000)
+        );
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM authors", Long.class)).isEqualTo(1);
+
+        existenceFilter.rebuild();
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/978-0-0000-0000-1")).andExpect(
+                MockMvcResultMatchers.status().isOk()
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.title").value("UPDATED")
+        );
+    }
+
+    @Test
+    public void testThatHotKeysListTheMostReadBooksFirst() throws Exception {
+        BookEntity testBookEntityA = TestingUtil.createTestBookEntityA(TestingUtil.createTestAuthorA());
+        bookService.createUpdateBook(testBookEntityA.getIsbn(), testBookEntityA);
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(MockMvcRequestBuilders.get("/books/" + testBookEntityA.getIsbn())).andExpect(MockMvcResultMatchers.status().isOk());
+        }
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/978-0-0000-0000-9")).andExpect(MockMvcResultMatchers.status().isNotFound());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/hot-keys/books").param("limit", "1")).andExpect(
+                MockMvcResultMatchers.jsonPath("$.length()").value(1)
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$[0].key").value(testBookEntityA.getIsbn())
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$[0].count").value(3)
+        );
+        mockMvc.perform(MockMvcRequestBuilders.get("/hot-keys/shelves")).andExpect(MockMvcResultMatchers.status().isNotFound());
+        mockMvc.perform(MockMvcRequestBuilders.get("/hot-keys/books").param("limit", "0")).andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
     @Test
     public void testThatCreateBookReturnsCreatedBook() throws Exception {
         BookDTO bookDTO = TestingUtil.createTestBookDtoA(null);
@@ -203,5 +460,570 @@ public class BookControllerIntegrationTests {
         );
     }
 
+    @Test
+    public void testThatBatchCreateBooksFromNdjsonReturnsCreatedCount() throws Exception {
+        String ndjson = "{\"isbn\":\"978-1-2345-6789-0\",\"title\":\"The Shadow in the Attic\",\"authorEntity\":{\"name\":\"Abigail Rose\",\"age\":80}}\n"
+                + "{\"isbn\":\"978-1-2345-6789-1\",\"title\":\"Beyond the Horizon\",\"authorEntity\":{\"name\":\"Adam Parker\",\"age\":36}}\n";
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/books/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(ndjson)
+        ).andExpect(
+                MockMvcResultMatchers.status().isOk()
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.created").value(2)
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.updated").value(0)
+        );
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/books/978-1-2345-6789-1")
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.authorEntity.name").value("Adam Parker")
+        );
+    }
+
+    @Test
+    public void testThatBatchUpdateBooksFromJsonArrayReturnsUpdatedCount() throws Exception {
+        BookEntity testBookEntityA = TestingUtil.createTestBookEntityA(null);
+        bookService.createUpdateBook(testBookEntityA.getIsbn(), testBookEntityA);
+        BookDTO bookDTO = TestingUtil.createTestBookDtoA(null);
+        bookDTO.setTitle("UPDATED");
+        String json = objectMapper.writeValueAsString(List.of(bookDTO));
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/books/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json)
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.created").value(0)
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.updated").value(1)
+        );
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/books/" + bookDTO.getIsbn())
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.title").value("UPDATED")
+        );
+    }
+
+    @Test
+    public void testThatBatchStoppedByMalformedJsonReturns400WithTheCommittedCount() throws Exception {
+        String ndjson = "{\"isbn\":\"978-0-0000-0000-1\",\"title\":\"First\"}\n"
+                + "{\"isbn\":\"978-0-0000-0000-2\",\"title\":\"Second\"}\n"
+                + "{\"isbn\":\"978-0-0000-0000-3\",\"title\":\"Third\"}\n"
+                + "{\"isbn\":\"978-0-0000-0000-4\",\"title\":\n";
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/books/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(ndjson)
+        ).andExpect(
+                MockMvcResultMatchers.status().isBadRequest()
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.created").value(2) //the first chunk, the third row's chunk never committed
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.error").isNotEmpty()
+        );
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/978-0-0000-0000-2")).andExpect(MockMvcResultMatchers.status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/978-0-0000-0000-3")).andExpect(MockMvcResultMatchers.status().isNotFound());
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/books/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("not json")
+        ).andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    public void testThatBatchRowWithoutAnIsbnReturns400WithTheCommittedCount() throws Exception {
+        String json = "[{\"isbn\":\"978-0-0000-0000-1\",\"title\":\"First\"},"
+                + "{\"isbn\":\"978-0-0000-0000-2\",\"title\":\"Second\"},"
+                + "{\"title\":\"No isbn\"}]";
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/books/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json)
+        ).andExpect(
+                MockMvcResultMatchers.status().isBadRequest()
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.created").value(2)
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.error").value("Row 3 has no isbn")
+        );
+    }
 
+    @Test
+    public void testThatCursorListBooksPagesThroughAllBooksByIsbn() throws Exception {
+        BookEntity testBookEntityA = TestingUtil.createTestBookEntityA(null);
+        BookEntity testBookEntityB = TestingUtil.createTestBookB(null);
+        BookEntity testBookEntityC = TestingUtil.createTestBookC(null);
+        bookService.createUpdateBook(testBookEntityA.getIsbn(), testBookEntityA);
+        bookService.createUpdateBook(testBookEntityB.getIsbn(), testBookEntityB);
+        bookService.createUpdateBook(testBookEntityC.getIsbn(), testBookEntityC);
+
+        MvcResult firstPage = mockMvc.perform(
+                MockMvcRequestBuilders.get("/books?cursor=&size=2&count=true")
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.content.length()").value(2)
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.content[0].isbn").value(testBookEntityA.getIsbn())
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.totalElements").value(3)
+        ).andReturn();
+        String nextCursor = objectMapper.readTree(firstPage.getResponse().getContentAsString()).get("nextCursor").asText();
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/books").param("cursor", nextCursor).param("size", "2")
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.content.length()").value(1)
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.content[0].isbn").value(testBookEntityC.getIsbn())
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.nextCursor").doesNotExist()
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.totalElements").doesNotExist()
+        );
+    }
+
+    @Test
+    public void testThatCursorListBooksKeepsTitleSortAcrossPages() throws Exception {
+        BookEntity testBookEntityA = TestingUtil.createTestBookEntityA(null);
+        BookEntity testBookEntityB = TestingUtil.createTestBookB(null);
+        BookEntity testBookEntityC = TestingUtil.createTestBookC(null);
+        bookService.createUpdateBook(testBookEntityA.getIsbn(), testBookEntityA);
+        bookService.createUpdateBook(testBookEntityB.getIsbn(), testBookEntityB);
+        bookService.createUpdateBook(testBookEntityC.getIsbn(), testBookEntityC);
+
+        MvcResult firstPage = mockMvc.perform(
+                MockMvcRequestBuilders.get("/books?cursor=&size=1&sort=title")
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.content[0].title").value("Beyond the Horizon")
+        ).andReturn();
+        String nextCursor = objectMapper.readTree(firstPage.getResponse().getContentAsString()).get("nextCursor").asText();
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/books").param("cursor", nextCursor).param("size", "1")
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.content[0].title").value("The Last Ember")
+        );
+    }
+
+    @Test
+    public void testThatCursorListBooksByTitleLeavesOutBooksWithoutATitle() throws Exception {
+        BookEntity untitled = BookEntity.builder().isbn("978-0-0000-0000-1").build();
+        BookEntity testBookEntityA = TestingUtil.createTestBookEntityA(null);
+        BookEntity testBookEntityB = TestingUtil.createTestBookB(null);
+        bookService.createUpdateBook(untitled.getIsbn(), untitled);
+        bookService.createUpdateBook(testBookEntityA.getIsbn(), testBookEntityA);
+        bookService.createUpdateBook(testBookEntityB.getIsbn(), testBookEntityB);
+
+        //a page of one ends on every book in turn, an untitled one would have to be encoded in the cursor
+        List<String> titles = new ArrayList<>();
+        String cursor = "";
+        do {
+            MvcResult page = mockMvc.perform(
+                    MockMvcRequestBuilders.get("/books").param("cursor", cursor).param("size", "1").param("sort", "title")
+            ).andExpect(MockMvcResultMatchers.status().isOk()).andReturn();
+            JsonNode body = objectMapper.readTree(page.getResponse().getContentAsString());
+            body.get("content").forEach(book -> titles.add(book.get("title").asText()));
+            cursor = body.hasNonNull("nextCursor") ? body.get("nextCursor").asText() : null;
+        } while (cursor != null);
+        assertThat(titles).containsExactly(testBookEntityB.getTitle(), testBookEntityA.getTitle());
+    }
+
+    @Test
+    public void testThatCursorListBooksReturnsHttpStatus400ForUnknownSortKey() throws Exception {
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/books?cursor=&sort=authorEntity")
+        ).andExpect(
+                MockMvcResultMatchers.status().isBadRequest()
+        );
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/books?cursor=not-a-cursor")
+        ).andExpect(
+                MockMvcResultMatchers.status().isBadRequest()
+        );
+    }
+
+    @Test
+    public void testThatExportBooksStreamsBooksWithAuthors() throws Exception {
+        BookEntity testBookEntityA = TestingUtil.createTestBookEntityA(TestingUtil.createTestAuthorA());
+        bookService.createUpdateBook(testBookEntityA.getIsbn(), testBookEntityA);
+
+        MvcResult result = mockMvc.perform(
+                MockMvcRequestBuilders.get("/books")
+                        .accept(MediaType.APPLICATION_NDJSON)
+        ).andExpect(MockMvcResultMatchers.request().asyncStarted()).andReturn();
+
+        MvcResult dispatched = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn();
+        String[] lines = dispatched.getResponse().getContentAsString().split("\n");
+        assertThat(lines).hasSize(1);
+        BookDTO exported = objectMapper.readValue(lines[0], BookDTO.class);
+        assertThat(exported.getIsbn()).isEqualTo(testBookEntityA.getIsbn());
+        assertThat(exported.getAuthorEntity().getName()).isEqualTo("Abigail Rose");
+    }
+
+    @Test
+    public void testThatListAndGetBooksRunAConstantNumberOfStatementsRegardlessOfPageSize() throws Exception {
+        for (int i = 0; i < 30; i++) {
+            AuthorEntity author = AuthorEntity.builder().name("Author " + i).age(30 + i).build();
+            BookEntity book = BookEntity.builder().title("Title " + i).authorEntity(author).build();
+            bookService.createUpdateBook(String.format("978-0-0000-%04d-0", i), book);
+        }
+
+        long smallPageStatements = countStatements("/books?size=5");
+        long largePageStatements = countStatements("/books?size=30");
+        assertThat(largePageStatements).isEqualTo(smallPageStatements);
+        assertThat(largePageStatements).isLessThanOrEqualTo(2); //page select and count
+
+        assertThat(countStatements("/books/978-0-0000-0007-0")).isEqualTo(1);
+    }
+
+    @Test
+    public void testThatListBooksWithoutCountSkipsTheCountQuery() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            bookService.createUpdateBook(String.format("978-0-0000-%04d-0", i), BookEntity.builder().title("Title " + i).build());
+        }
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books").param("count", "none").param("size", "2").param("sort", "isbn"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[*].isbn", contains("978-0-0000-0000-0", "978-0-0000-0001-0")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.hasNext").value(true))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.totalElements").doesNotExist());
+        mockMvc.perform(MockMvcRequestBuilders.get("/books").param("count", "none").param("size", "2").param("page", "1"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.hasNext").value(false));
+        assertThat(countStatements("/books?count=none&size=2")).isEqualTo(1);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books").param("count", "exact").param("size", "2"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.totalElements").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.hasNext").value(true));
+        mockMvc.perform(MockMvcRequestBuilders.get("/books").param("count", "all"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    public void testThatCursorAndSliceListingsTakeTheSameCountModes() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            bookService.createUpdateBook(String.format("978-0-0000-%04d-0", i), BookEntity.builder().title("Title " + i).build());
+        }
+
+        for (String count : List.of("exact", "estimated", "true")) {
+            mockMvc.perform(MockMvcRequestBuilders.get("/books").param("count", count).param("size", "2"))
+                    .andExpect(MockMvcResultMatchers.status().isOk())
+                    .andExpect(MockMvcResultMatchers.jsonPath("$.totalElements").value(3));
+            mockMvc.perform(MockMvcRequestBuilders.get("/books").param("cursor", "").param("count", count).param("size", "2"))
+                    .andExpect(MockMvcResultMatchers.status().isOk())
+                    .andExpect(MockMvcResultMatchers.jsonPath("$.totalElements").value(3));
+        }
+        for (String count : List.of("none", "false")) {
+            mockMvc.perform(MockMvcRequestBuilders.get("/books").param("count", count).param("size", "2"))
+                    .andExpect(MockMvcResultMatchers.status().isOk())
+                    .andExpect(MockMvcResultMatchers.jsonPath("$.totalElements").doesNotExist());
+            mockMvc.perform(MockMvcRequestBuilders.get("/books").param("cursor", "").param("count", count).param("size", "2"))
+                    .andExpect(MockMvcResultMatchers.status().isOk())
+                    .andExpect(MockMvcResultMatchers.jsonPath("$.totalElements").doesNotExist());
+        }
+        assertThat(countStatements("/books?cursor=&count=none&size=2")).isEqualTo(1);
+        mockMvc.perform(MockMvcRequestBuilders.get("/books").param("cursor", "").param("count", "all"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    public void testThatEstimatedCountIsReusedUntilItIsRefreshed() throws Exception {
+        bookService.createUpdateBook("978-0-0000-0000-0", BookEntity.builder().title("Title 0").build());
+        mockMvc.perform(MockMvcRequestBuilders.get("/books").param("count", "estimated"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.totalElements").value(1));
+
+        bookService.createUpdateBook("978-0-0000-0001-0", BookEntity.builder().title("Title 1").build());
+        assertThat(countStatements("/books?count=estimated")).isEqualTo(1); //the page only, the count is still fresh
+        mockMvc.perform(MockMvcRequestBuilders.get("/books").param("count", "estimated"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content.length()").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.totalElements").value(1));
+    }
+
+    @Test
+    public void testThatAuthorUpdateInvalidatesCachedBooksEmbeddingThatAuthor() throws Exception {
+        BookEntity testBookEntityA = TestingUtil.createTestBookEntityA(TestingUtil.createTestAuthorA());
+        BookEntity savedBookEntity = bookService.createUpdateBook(testBookEntityA.getIsbn(), testBookEntityA);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/" + savedBookEntity.getIsbn()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.authorEntity.name").value("Abigail Rose"));
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/" + savedBookEntity.getIsbn()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.authorEntity.name").value("Abigail Rose"));
+        mockMvc.perform(MockMvcRequestBuilders.get("/caches"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.books.hitCount").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.books.missCount").value(1));
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.patch("/authors/" + savedBookEntity.getAuthorEntity().getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Renamed\"}")
+        ).andExpect(MockMvcResultMatchers.status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/" + savedBookEntity.getIsbn()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.authorEntity.name").value("Renamed"));
+    }
+
+    @Test
+    public void testThatPartialUpdateBookInvalidatesCachedBook() throws Exception {
+        BookEntity testBookEntityA = TestingUtil.createTestBookEntityA(null);
+        bookService.createUpdateBook(testBookEntityA.getIsbn(), testBookEntityA);
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/" + testBookEntityA.getIsbn()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.title").value("The Shadow in the Attic"));
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.patch("/books/" + testBookEntityA.getIsbn())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Updated\"}")
+        ).andExpect(MockMvcResultMatchers.status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/" + testBookEntityA.getIsbn()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.title").value("Updated"));
+    }
+
+    @Test
+    public void testThatGetBookReturnsHttpStatus304WhenETagMatches() throws Exception {
+        BookEntity testBookEntityA = TestingUtil.createTestBookEntityA(TestingUtil.createTestAuthorA());
+        bookService.createUpdateBook(testBookEntityA.getIsbn(), testBookEntityA);
+
+        String eTag = mockMvc.perform(MockMvcRequestBuilders.get("/books/" + testBookEntityA.getIsbn()))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/books/" + testBookEntityA.getIsbn())
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag)
+        ).andExpect(
+                MockMvcResultMatchers.status().isNotModified()
+        ).andExpect(
+                MockMvcResultMatchers.content().string("")
+        );
+    }
+
+    @Test
+    public void testThatBookETagStaysWhenItsAuthorGetsAnotherBook() throws Exception {
+        BookEntity savedBookEntity = bookService.createUpdateBook("978-1-2345-6789-0", TestingUtil.createTestBookEntityA(TestingUtil.createTestAuthorA()));
+        String eTag = mockMvc.perform(MockMvcRequestBuilders.get("/books/" + savedBookEntity.getIsbn()))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        AuthorEntity sameAuthor = AuthorEntity.builder().id(savedBookEntity.getAuthorEntity().getId()).name("Abigail Rose").age(80).build();
+        bookService.createUpdateBook("978-0-0000-0000-1", BookEntity.builder().title("Second").authorEntity(sameAuthor).build());
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/books/" + savedBookEntity.getIsbn())
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag)
+        ).andExpect(MockMvcResultMatchers.status().isNotModified());
+    }
+
+    @Test
+    public void testThatBookETagChangesWhenItsAuthorChanges() throws Exception {
+        BookEntity testBookEntityA = TestingUtil.createTestBookEntityA(TestingUtil.createTestAuthorA());
+        BookEntity savedBookEntity = bookService.createUpdateBook(testBookEntityA.getIsbn(), testBookEntityA);
+        String eTag = mockMvc.perform(MockMvcRequestBuilders.get("/books/" + savedBookEntity.getIsbn()))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.patch("/authors/" + savedBookEntity.getAuthorEntity().getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"age\":81}")
+        ).andExpect(MockMvcResultMatchers.status().isOk());
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/books/" + savedBookEntity.getIsbn())
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag)
+        ).andExpect(
+                MockMvcResultMatchers.status().isOk()
+        ).andExpect(
+                MockMvcResultMatchers.jsonPath("$.authorEntity.age").value(81)
+        );
+    }
+
+    @Test
+    public void testThatUpdateBookWithStaleIfMatchReturnsHttpStatus412() throws Exception {
+        BookEntity testBookEntityA = TestingUtil.createTestBookEntityA(null);
+        bookService.createUpdateBook(testBookEntityA.getIsbn(), testBookEntityA);
+        String eTag = mockMvc.perform(MockMvcRequestBuilders.get("/books/" + testBookEntityA.getIsbn()))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        BookDTO bookDTO = TestingUtil.createTestBookDtoA(null);
+
+        bookDTO.setTitle("First");
+        mockMvc.perform(
+                MockMvcRequestBuilders.put("/books/" + bookDTO.getIsbn())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, eTag)
+                        .content(objectMapper.writeValueAsString(bookDTO))
+        ).andExpect(
+                MockMvcResultMatchers.status().isOk()
+        ).andExpect(
+                MockMvcResultMatchers.header().string(HttpHeaders.ETAG, not(eTag))
+        );
+
+        bookDTO.setTitle("Second");
+        mockMvc.perform(
+                MockMvcRequestBuilders.patch("/books/" + bookDTO.getIsbn())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, eTag)
+                        .content(objectMapper.writeValueAsString(bookDTO))
+        ).andExpect(
+                MockMvcResultMatchers.status().isPreconditionFailed()
+        );
+    }
+
+    @Test
+    public void testThatSearchBooksMatchesTitlesAndAuthorNamesByPrefix() throws Exception {
+        AuthorEntity testAuthorA = TestingUtil.createTestAuthorA();
+        testAuthorA.setId(null);
+        BookEntity testBookEntityA = TestingUtil.createTestBookEntityA(testAuthorA);
+        bookService.createUpdateBook(testBookEntityA.getIsbn(), testBookEntityA);
+        BookEntity testBookB = TestingUtil.createTestBookB(null);
+        bookService.createUpdateBook(testBookB.getIsbn(), testBookB);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/search").param("q", "shadow att"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].isbn").value(testBookEntityA.getIsbn()));
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/search").param("q", "ABIGAIL"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].title").value("The Shadow in the Attic"));
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/search").param("q", "zebra"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    public void testThatSearchBooksFollowsUpdatesAndDeletes() throws Exception {
+        BookEntity testBookEntityA = TestingUtil.createTestBookEntityA(null);
+        bookService.createUpdateBook(testBookEntityA.getIsbn(), testBookEntityA);
+        bookService.partialUpdate(testBookEntityA.getIsbn(), BookEntity.builder().title("Night Train").build());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/search").param("q", "shadow"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(0));
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/search").param("q", "night"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].title").value("Night Train"));
+
+        bookService.delete(testBookEntityA.getIsbn());
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/search").param("q", "night"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    public void testThatSuggestTitlesReturnsMostCommonCompletionsFirst() throws Exception {
+        bookService.createUpdateBook("978-0-0000-0000-1", BookEntity.builder().title("The Last Ember").build());
+        bookService.createUpdateBook("978-0-0000-0000-2", BookEntity.builder().title("The Shadow in the Attic").build());
+        bookService.createUpdateBook("978-0-0000-0000-3", BookEntity.builder().title("The Shadow in the Attic").build());
+        bookService.createUpdateBook("978-0-0000-0000-4", BookEntity.builder().title("Theory of Everything").build());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/suggest").param("prefix", "the"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0]").value("The Shadow in the Attic"));
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/suggest").param("prefix", "The "))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(2));
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/suggest").param("prefix", "the la"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0]").value("The Last Ember"));
+    }
+
+    @Test
+    public void testThatSuggestTitlesFollowsRenamesAndDeletes() throws Exception {
+        bookService.createUpdateBook("978-0-0000-0000-1", BookEntity.builder().title("Beyond the Horizon").build());
+        bookService.createUpdateBook("978-0-0000-0000-2", BookEntity.builder().title("Beyond Belief").build());
+        bookService.partialUpdate("978-0-0000-0000-1", BookEntity.builder().title("Night Train").build());
+        bookService.delete("978-0-0000-0000-2");
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/suggest").param("prefix", "bey"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(0));
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/suggest").param("prefix", "night"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0]").value("Night Train"));
+    }
+
+    @Test
+    public void testThatEagerAuthorsOfBookLoadsComeFromTheSecondLevelCache() {
+        AuthorEntity author = TestingUtil.createTestAuthorA();
+        author.setId(null);
+        bookService.createUpdateBook("978-1-2345-6789-0", TestingUtil.createTestBookEntityA(author));
+        AuthorEntity savedAuthor = bookService.findOne("978-1-2345-6789-0").orElseThrow().getAuthorEntity();
+        bookService.createUpdateBook("978-1-2345-6789-1", TestingUtil.createTestBookB(savedAuthor));
+        bookService.findAll(); //the book count writes evicted the author, this puts it back
+
+        statistics.clear();
+        assertThat(bookService.findAll()).extracting(book -> book.getAuthorEntity().getBookCount()).containsExactly(2, 2);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1); //the books only, no select for the author
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testThatRequestsAreTimedPerEndpointServiceAndMapper() throws Exception {
+        BookDTO bookDTO = TestingUtil.createTestBookDtoA(null);
+        mockMvc.perform(
+                MockMvcRequestBuilders.put("/books/" + bookDTO.getIsbn())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(bookDTO))
+        ).andExpect(MockMvcResultMatchers.status().isCreated());
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/" + bookDTO.getIsbn())).andExpect(MockMvcResultMatchers.status().isOk());
+
+        assertThat(meterRegistry.get("http.server.requests").tags("uri", "/books/{isbn}", "method", "GET").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("library.service").tags("class", "BookServiceImpl", "method", "findOneDTO").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("library.mapper").tags("class", "BookMapperImpl", "method", "mapFrom").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("hibernate.statements").tag("status", "prepared").functionCounter().count()).isPositive();
+        assertThat(meterRegistry.get("hikaricp.connections.max").gauge().value()).isPositive();
+        assertThat(meterRegistry.get("cache.gets").tags("cache", "books", "result", "miss").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testThatChangesStreamBookAndAuthorWritesAsTheyCommit() throws Exception {
+        MvcResult stream = mockMvc.perform(MockMvcRequestBuilders.get("/changes"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        BookEntity book = bookService.createUpdateBook("978-1-2345-6789-0", TestingUtil.createTestBookEntityA(TestingUtil.createTestAuthorA()));
+        bookService.delete("978-1-2345-6789-0");
+
+        String events = awaitContent(stream, "\"type\":\"delete\"");
+        String epoch = changeLog.getEpoch();
+        assertThat(events).contains("id:" + epoch + "-1\nevent:change\ndata:{\"sequence\":1,\"entity\":\"author\",\"id\":\"" + book.getAuthorEntity().getId() + "\"");
+        assertThat(events).contains("id:" + epoch + "-2\nevent:change\ndata:{\"sequence\":2,\"entity\":\"book\",\"id\":\"978-1-2345-6789-0\",\"type\":\"upsert\",\"version\":" + book.getVersion() + "}");
+        assertThat(events).contains("id:" + epoch + "-4\nevent:change\ndata:{\"sequence\":4,\"entity\":\"book\",\"id\":\"978-1-2345-6789-0\",\"type\":\"delete\",\"version\":null}");
+
+        //a delete that finds no row is not announced, even when the existence filter let it through
+        bookService.createUpdateBook("978-0-0000-0000-1", BookEntity.builder().title("First").build());
+        bookRepository.deleteById("978-0-0000-0000-1");
+        long lastSequence = changeLog.getLastSequence();
+        bookService.delete("978-0-0000-0000-1");
+        assertThat(changeLog.getLastSequence()).isEqualTo(lastSequence);
+    }
+
+    @Test
+    public void testThatChangesResumeFromLastEventIdOrAskForARescan() throws Exception {
+        bookService.createUpdateBook("978-0-0000-0000-1", BookEntity.builder().title("First").build());
+        bookService.createUpdateBook("978-0-0000-0000-2", BookEntity.builder().title("Second").build());
+
+        MvcResult resumed = mockMvc.perform(MockMvcRequestBuilders.get("/changes").header("Last-Event-ID", changeLog.getEpoch() + "-1"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        String events = awaitContent(resumed, "978-0-0000-0000-2");
+        assertThat(events).doesNotContain("978-0-0000-0000-1");
+
+        MvcResult foreign = mockMvc.perform(MockMvcRequestBuilders.get("/changes").param("after", "otherprocess-1"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        assertThat(awaitContent(foreign, "event:reset")).startsWith("id:" + changeLog.getEpoch() + "-2\nevent:reset");
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/changes").param("after", "garbage"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    private static String awaitContent(MvcResult stream, String expected) throws Exception {
+        for (int attempt = 0; attempt < 100 && !stream.getResponse().getContentAsString().contains(expected); attempt++) {
+            Thread.sleep(50);
+        }
+        String content = stream.getResponse().getContentAsString();
+        assertThat(content).contains(expected);
+        return content;
+    }
+
+    private long countStatements(String url) throws Exception {
+        statistics.clear();
+        mockMvc.perform(MockMvcRequestBuilders.get(url)).andExpect(MockMvcResultMatchers.status().isOk());
+        return statistics.getPrepareStatementCount();
+    }
 }
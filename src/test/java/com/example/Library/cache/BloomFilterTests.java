@@ -0,0 +1,59 @@
+package com.example.Library.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.data.Percentage.withPercentage;
+
+public class BloomFilterTests {
+
+    @Test
+    public void testThatAddedKeysAreNeverMissed() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        Set<String> keys = new HashSet<>();
+        Random random = new Random(11);
+        while (keys.size() < 10_000) {
+            String key = "978-" + random.nextInt(1_000_000);
+            if (keys.add(key)) {
+                filter.add(BloomFilter.hash(key));
+            }
+        }
+        assertThat(filter.isOverCapacity()).isFalse();
+        assertThat(filter.size()).isEqualTo(keys.size());
+        assertThat(keys).allMatch(key -> filter.mightContain(BloomFilter.hash(key)));
+    }
+
+    @Test
+    public void testThatFalsePositivesStayNearTheConfiguredRate() {
+        BloomFilter filter = new BloomFilter(100_000, 0.001);
+        for (long id = 0; id < 100_000; id++) {
+            filter.add(BloomFilter.hash(id));
+        }
+        int falsePositives = 0;
+        for (long id = 100_000; id < 1_100_000; id++) {
+            if (filter.mightContain(BloomFilter.hash(id))) {
+                falsePositives++;
+            }
+        }
+        assertThat(filter.getHashes()).isEqualTo(10);
+        assertThat(falsePositives / 1_000_000.0).isCloseTo(0.001, withPercentage(25)).isCloseTo(filter.getExpectedFalsePositiveRate(), withPercentage(25));
+        assertThat(filter.getMemoryBytes()).isEqualTo(22_465 * 8);
+    }
+
+    @Test
+    public void testThatAFilterOverCapacityStillHoldsEveryKey() {
+        BloomFilter filter = new BloomFilter(100, 0.01);
+        for (long id = 0; id < 1_000; id++) {
+            filter.add(BloomFilter.hash(id));
+        }
+        assertThat(filter.isOverCapacity()).isTrue();
+        assertThat(filter.getExpectedFalsePositiveRate()).isGreaterThan(0.5);
+        for (long id = 0; id < 1_000; id++) {
+            assertThat(filter.mightContain(BloomFilter.hash(id))).isTrue();
+        }
+    }
+}
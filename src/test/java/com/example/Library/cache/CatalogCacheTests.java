@@ -0,0 +1,30 @@
+package com.example.Library.cache;
+
+import com.example.Library.changes.ChangeLog;
+import com.example.Library.domain.DTO.BookDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CatalogCacheTests {
+
+    @Test
+    public void testThatAFailedBulkLoadLeavesNoPendingEntriesBehind() {
+        CatalogCache catalogCache = new CatalogCache(100, Duration.ofMinutes(10), 100, Duration.ofMinutes(10),
+                new SingleFlight(new ChangeLog(16), Duration.ofMillis(100)));
+        assertThatThrownBy(() -> catalogCache.getBooks(List.of("978-0-0000-0000-1"), isbns -> {
+            throw new StackOverflowError();
+        })).isInstanceOf(StackOverflowError.class);
+
+        //would wait for the claimed entry and time out if it had been left in the cache
+        BookDTO book = BookDTO.builder().isbn("978-0-0000-0000-1").title("First").build();
+        assertThat(catalogCache.getBook("978-0-0000-0000-1", isbn -> Optional.of(book))).contains(book);
+        assertThat(catalogCache.getBooks(List.of("978-0-0000-0000-1"), isbns -> Map.of())).containsEntry("978-0-0000-0000-1", book);
+    }
+}
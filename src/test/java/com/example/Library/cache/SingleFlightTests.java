@@ -0,0 +1,94 @@
+package com.example.Library.cache;
+
+import com.example.Library.changes.ChangeLog;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SingleFlightTests {
+
+    private ChangeLog changeLog = new ChangeLog(16);
+
+    //every read on a thread of its own, however small the common pool is
+    private ExecutorService readers = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Test
+    public void testThatConcurrentIdenticalReadsShareOneLoad() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(changeLog, Duration.ofSeconds(10));
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<CompletableFuture<String>> reads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            reads.add(CompletableFuture.supplyAsync(() -> singleFlight.run("books.page", 3, () -> {
+                loads.incrementAndGet();
+                await(release);
+                return "page 3";
+            }), readers));
+        }
+        Thread.sleep(100);
+        String otherPage = singleFlight.run("books.page", 4, () -> "page 4"); //another argument never waits
+        release.countDown();
+
+        for (CompletableFuture<String> read : reads) {
+            assertThat(read.get(5, TimeUnit.SECONDS)).isEqualTo("page 3");
+        }
+        assertThat(otherPage).isEqualTo("page 4");
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    public void testThatEveryWaiterGetsTheLoadsException() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(changeLog, Duration.ofSeconds(10));
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("database down");
+        CompletableFuture<Object> leader = CompletableFuture.supplyAsync(() -> singleFlight.run("authors.all", null, () -> {
+            await(release);
+            throw failure;
+        }), readers);
+        Thread.sleep(50);
+        CompletableFuture<Object> waiter = CompletableFuture.supplyAsync(() -> singleFlight.run("authors.all", null, () -> "not run"), readers);
+        Thread.sleep(50);
+        release.countDown();
+
+        assertThatThrownBy(() -> leader.join()).isInstanceOf(CompletionException.class).hasCause(failure);
+        assertThatThrownBy(() -> waiter.join()).isInstanceOf(CompletionException.class).hasCause(failure);
+    }
+
+    @Test
+    public void testThatWaitersGiveUpAfterTheTimeoutAndReadsAfterAWriteStartOver() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(changeLog, Duration.ofMillis(50));
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> singleFlight.run("books.count", null, () -> {
+            await(release);
+            return "before";
+        }), readers);
+        Thread.sleep(50);
+        assertThatThrownBy(() -> singleFlight.run("books.count", null, () -> "not run")).isInstanceOf(QueryTimeoutException.class);
+
+        changeLog.publish(ChangeLog.BOOK, "978-1-2345-6789-0", ChangeLog.UPSERT, 0L);
+        assertThat(singleFlight.run("books.count", null, () -> "after")).isEqualTo("after");
+        release.countDown();
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("before");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
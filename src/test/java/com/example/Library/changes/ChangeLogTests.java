@@ -0,0 +1,45 @@
+package com.example.Library.changes;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ChangeLogTests {
+
+    @Test
+    public void testThatOneWriteWakesEveryWaitingSubscriber() throws Exception {
+        ChangeLog changeLog = new ChangeLog(16);
+        List<Future<Boolean>> waits = new ArrayList<>();
+        try (ExecutorService subscribers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 1000; i++) {
+                waits.add(subscribers.submit(() -> changeLog.awaitAfter(0, Duration.ofSeconds(10))));
+            }
+            Thread.sleep(100);
+            changeLog.publish(ChangeLog.BOOK, "978-1-2345-6789-0", ChangeLog.UPSERT, 0L);
+            for (Future<Boolean> wait : waits) {
+                assertThat(wait.get(5, TimeUnit.SECONDS)).isTrue();
+            }
+        }
+    }
+
+    @Test
+    public void testThatWaitingEndsAtTheTimeoutOrOnClose() throws Exception {
+        ChangeLog changeLog = new ChangeLog(16);
+        assertThat(changeLog.awaitAfter(0, Duration.ofMillis(20))).isFalse();
+
+        try (ExecutorService subscribers = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Boolean> wait = subscribers.submit(() -> changeLog.awaitAfter(0, Duration.ofSeconds(10)));
+            Thread.sleep(50);
+            changeLog.destroy();
+            assertThat(wait.get(5, TimeUnit.SECONDS)).isFalse();
+        }
+    }
+}
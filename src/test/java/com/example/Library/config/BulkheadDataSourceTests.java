@@ -0,0 +1,34 @@
+package com.example.Library.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BulkheadDataSourceTests {
+
+    private BulkheadDataSource bulkhead = new BulkheadDataSource(
+            new DriverManagerDataSource("jdbc:h2:mem:bulkhead", "sa", ""), 1, Duration.ofMillis(50));
+
+    @Test
+    public void testThatBulkheadRejectsWhenAllPermitsAreCheckedOut() throws Exception {
+        try (Connection ignored = bulkhead.getConnection()) {
+            assertThat(bulkhead.getAvailablePermits()).isZero();
+            assertThatThrownBy(bulkhead::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+        }
+        assertThat(bulkhead.getAvailablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    public void testThatClosingAConnectionTwiceReleasesOnePermit() throws Exception {
+        Connection connection = bulkhead.getConnection();
+        connection.close();
+        connection.close();
+        assertThat(bulkhead.getAvailablePermits()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.Library.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReadWriteRoutingDataSourceTests {
+
+    private JdbcTemplate primary = database("primary");
+
+    private JdbcTemplate replica = database("replica");
+
+    private ReadWriteRoutingDataSource routing;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate readWrite;
+
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    public void setUp() {
+        replica.execute("create table lag (seconds double)");
+        replica.update("insert into lag values (0)");
+        //checked by hand in the tests, not on the schedule
+        routing = new ReadWriteRoutingDataSource(primary.getDataSource(), replica.getDataSource(),
+                "select seconds from lag", Duration.ofSeconds(1), Duration.ofHours(1));
+        routing.afterPropertiesSet();
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routing);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        routing.destroy();
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void testThatReadOnlyTransactionsGoToTheReplicaAndTheRestToThePrimary() {
+        assertThat(origin(readOnly)).isEqualTo("replica");
+        assertThat(origin(readWrite)).isEqualTo("primary");
+        assertThat(origin()).isEqualTo("primary");
+    }
+
+    @Test
+    public void testThatARequestReadsFromThePrimaryAfterItWrote() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        assertThat(origin(readOnly)).isEqualTo("replica");
+
+        readWrite.executeWithoutResult(status -> jdbcTemplate.update("update origin set name = 'primary, written'"));
+
+        assertThat(origin(readOnly)).isEqualTo("primary, written");
+
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        assertThat(origin(readOnly)).isEqualTo("replica");
+    }
+
+    @Test
+    public void testThatReadsGoToThePrimaryWhileTheReplicaLagsTooFarOrCannotBeReached() {
+        replica.update("update lag set seconds = 0.5");
+        routing.checkLag();
+        assertThat(routing.getLagSeconds()).isEqualTo(0.5);
+        assertThat(origin(readOnly)).isEqualTo("replica");
+
+        replica.update("update lag set seconds = 5");
+        routing.checkLag();
+        assertThat(routing.isReplicaUsable()).isFalse();
+        assertThat(origin(readOnly)).isEqualTo("primary");
+
+        replica.execute("drop table lag");
+        routing.checkLag();
+        assertThat(routing.getLagSeconds()).isEqualTo(-1);
+        assertThat(origin(readOnly)).isEqualTo("primary");
+    }
+
+    private String origin() {
+        return jdbcTemplate.queryForObject("select name from origin", String.class);
+    }
+
+    private String origin(TransactionTemplate transactionTemplate) {
+        return transactionTemplate.execute(status -> origin());
+    }
+
+    private static JdbcTemplate database(String name) {
+        JdbcTemplate database = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+        database.execute("create table origin (name varchar(32))");
+        database.update("insert into origin values (?)", name);
+        return database;
+    }
+}
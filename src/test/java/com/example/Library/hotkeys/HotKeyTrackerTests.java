@@ -0,0 +1,58 @@
+package com.example.Library.hotkeys;
+
+import com.example.Library.cache.BloomFilter;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HotKeyTrackerTests {
+
+    @Test
+    public void testThatSketchEstimatesAreNeverLowAndRarelyFarOff() {
+        CountMinSketch sketch = new CountMinSketch(1000);
+        Map<Long, Integer> counts = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(20_000);
+            counts.merge(key, 1, Integer::sum);
+            sketch.add(BloomFilter.hash(key));
+        }
+        assertThat(sketch.getWidth()).isEqualTo(1024);
+        long farOff = counts.entrySet().stream().filter(count -> {
+            long estimate = sketch.estimate(BloomFilter.hash(count.getKey()));
+            assertThat(estimate).isGreaterThanOrEqualTo(count.getValue());
+            return estimate - count.getValue() > Math.E * 100_000 / 1024;
+        }).count();
+        assertThat(farOff / (double) counts.size()).isLessThan(0.02);
+    }
+
+    @Test
+    public void testThatTheHeaviestKeysOfASkewedStreamAreFound() {
+        HotKeyTracker<String> tracker = new HotKeyTracker<>(BloomFilter::hash, 4096, 10);
+        Random random = new Random(3);
+        for (int i = 0; i < 200_000; i++) {
+            //keys 0-4 take about half the reads, the rest are spread over 50,000 books
+            int book = random.nextBoolean() ? random.nextInt(5) : 5 + random.nextInt(50_000);
+            tracker.record("978-" + book);
+        }
+        List<String> top = tracker.top(5).stream().map(HotKeyTracker.HotKey::key).collect(Collectors.toList());
+        assertThat(top).containsExactlyInAnyOrder("978-0", "978-1", "978-2", "978-3", "978-4");
+        assertThat(tracker.top(100)).hasSize(10);
+    }
+
+    @Test
+    public void testThatDecayHalvesTheCounts() {
+        HotKeyTracker<Long> tracker = new HotKeyTracker<>(BloomFilter::hash, 1024, 10);
+        for (int i = 0; i < 100; i++) {
+            tracker.record(42L);
+        }
+        tracker.decay();
+        assertThat(tracker.top(1)).containsExactly(new HotKeyTracker.HotKey<>(42L, 50));
+    }
+}
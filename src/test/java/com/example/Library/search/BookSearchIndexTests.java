@@ -0,0 +1,51 @@
+package com.example.Library.search;
+
+import com.example.Library.domain.DTO.BookDTO;
+import com.example.Library.domain.Entities.AuthorEntity;
+import com.example.Library.domain.Entities.BookEntity;
+import com.example.Library.mappers.impl.AuthorMapperImpl;
+import com.example.Library.mappers.impl.BookMapperImpl;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BookSearchIndexTests {
+
+    private static final AuthorEntity AUTHOR = AuthorEntity.builder().id(1L).name("Ann Leckie").age(57).version(0L).build();
+
+    @Test
+    public void testThatAPutThatCommittedBeforeADeleteDoesNotBringTheBookBack() {
+        AuthorMapperImpl authorMapper = new AuthorMapperImpl();
+        BookSearchIndex index = new BookSearchIndex(new BookMapperImpl(authorMapper), authorMapper, new WriteSequences());
+        index.rebuild(sink -> sink.accept(book("Ancillary Justice", 0)));
+
+        //the delete reaches the index first, then the update it deleted
+        index.remove("978-1", 2);
+        index.put(book("Ancillary Sword", 1), 1);
+        assertThat(index.search("ancillary", 10)).isEmpty();
+
+        //created again after the delete, at version 0
+        index.put(book("Ancillary Mercy", 0), 3);
+        assertThat(index.search("ancillary", 10)).extracting(BookDTO::getTitle).containsExactly("Ancillary Mercy");
+    }
+
+    @Test
+    public void testThatAuthorWritesOlderThanTheLastAppliedAreIgnored() {
+        AuthorMapperImpl authorMapper = new AuthorMapperImpl();
+        BookSearchIndex index = new BookSearchIndex(new BookMapperImpl(authorMapper), authorMapper, new WriteSequences());
+        index.rebuild(sink -> sink.accept(book("Ancillary Justice", 0)));
+
+        AuthorEntity renamed = AuthorEntity.builder().id(1L).name("Ann Leckie Renamed").age(57).version(1L).build();
+        index.putAuthor(renamed, 3);
+        index.putAuthor(AUTHOR, 1); //committed before the rename
+        assertThat(index.search("renamed", 10)).extracting(BookDTO::getTitle).containsExactly("Ancillary Justice");
+
+        //a book write that committed before the rename keeps the renamed author
+        index.put(book("Ancillary Sword", 1), 2);
+        assertThat(index.search("renamed", 10)).extracting(BookDTO::getTitle).containsExactly("Ancillary Sword");
+    }
+
+    private static BookEntity book(String title, long version) {
+        return BookEntity.builder().isbn("978-1").title(title).authorEntity(AUTHOR).version(version).build();
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.Library.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TitleSuggesterTests {
+
+    private static final String[] WORDS = {"the", "them", "theory", "a", "an", "night", "nine", "house", "horizon"};
+
+    @Test
+    public void testThatSuggestionsMatchABruteForceScanAfterRandomWrites() {
+        TitleSuggester suggester = new TitleSuggester(3, new WriteSequences());
+        Map<String, String> titles = new HashMap<>();
+        Map<String, Long> reads = new HashMap<>();
+        Random random = new Random(7);
+        for (int step = 0; step < 2000; step++) {
+            String isbn = "isbn-" + random.nextInt(60);
+            if (step % 100 == 0) {
+                reads.clear();
+                for (int i = 0; i < 10; i++) {
+                    reads.put("isbn-" + random.nextInt(60), (long) random.nextInt(5));
+                }
+                suggester.rank(reads);
+            }
+            if (random.nextInt(4) == 0) {
+                suggester.remove(isbn, step);
+                titles.remove(isbn);
+            } else {
+                String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)];
+                suggester.put(isbn, title, step);
+                titles.put(isbn, title);
+            }
+            String word = WORDS[random.nextInt(WORDS.length)];
+            String prefix = word.substring(0, 1 + random.nextInt(word.length()));
+            assertThat(suggester.suggest(prefix, 3)).as("prefix %s at step %d", prefix, step).isEqualTo(bruteForce(titles, reads, prefix, 3));
+        }
+    }
+
+    @Test
+    public void testThatTheMostReadTitlesComeFirst() {
+        TitleSuggester suggester = new TitleSuggester(10, new WriteSequences());
+        suggester.rebuild(Map.of("1", "Theory", "2", "The Shadow", "3", "The Shadow"));
+        assertThat(suggester.suggest("th", 10)).containsExactly("The Shadow", "Theory");
+
+        suggester.rank(Map.of("1", 5L, "2", 3L));
+        assertThat(suggester.suggest("th", 10)).containsExactly("Theory", "The Shadow");
+
+        suggester.put("1", "Nightfall", 1); //the reads go with the book
+        assertThat(suggester.suggest("th", 10)).containsExactly("The Shadow");
+        suggester.rank(Map.of("2", 3L));
+        assertThat(suggester.suggest("n", 10)).containsExactly("Nightfall");
+    }
+
+    @Test
+    public void testThatACaseOnlyEditChangesTheSuggestion() {
+        TitleSuggester suggester = new TitleSuggester(10, new WriteSequences());
+        suggester.put("1", "the shadow", 1);
+        suggester.put("1", "The Shadow", 2);
+        assertThat(suggester.suggest("the", 10)).containsExactly("The Shadow");
+    }
+
+    @Test
+    public void testThatRebuildMatchesIncrementalWrites() {
+        Map<String, String> titles = Map.of("1", "The Last Ember", "2", "The Shadow", "3", "The Shadow", "4", "Theory");
+        TitleSuggester rebuilt = new TitleSuggester(10, new WriteSequences());
+        rebuilt.rebuild(titles);
+        TitleSuggester incremental = new TitleSuggester(10, new WriteSequences());
+        titles.forEach((isbn, title) -> incremental.put(isbn, title, 1));
+        assertThat(rebuilt.suggest("th", 10)).isEqualTo(incremental.suggest("th", 10))
+                .containsExactly("The Shadow", "Theory", "The Last Ember");
+    }
+
+    @Test
+    public void testThatWritesOlderThanTheLastAppliedAreIgnored() {
+        TitleSuggester suggester = new TitleSuggester(10, new WriteSequences());
+        suggester.put("1", "Night Watch", 2);
+        suggester.put("1", "Nightfall", 1); //committed before the write above
+        assertThat(suggester.suggest("night", 10)).containsExactly("Night Watch");
+
+        suggester.remove("1", 4);
+        suggester.put("1", "Night Shift", 3); //committed before the delete
+        assertThat(suggester.suggest("night", 10)).isEmpty();
+
+        suggester.put("1", "Nightingale", 5); //created again
+        assertThat(suggester.suggest("night", 10)).containsExactly("Nightingale");
+    }
+
+    private static List<String> bruteForce(Map<String, String> titles, Map<String, Long> reads, String prefix, int limit) {
+        Map<String, Long> counts = titles.values().stream()
+                .filter(title -> title.startsWith(prefix))
+                .collect(Collectors.groupingBy(title -> title, Collectors.counting()));
+        Map<String, Long> titleReads = new HashMap<>();
+        titles.forEach((isbn, title) -> titleReads.merge(title, reads.getOrDefault(isbn, 0L), Long::sum));
+        return counts.entrySet().stream()
+                .sorted(Comparator.comparing((Map.Entry<String, Long> entry) -> titleReads.get(entry.getKey())).reversed()
+                        .thenComparing(Map.Entry.<String, Long>comparingByValue().reversed())
+                        .thenComparing(entry -> entry.getKey().length())
+                        .thenComparing(Map.Entry::getKey))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.Library.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WriteOrderTests {
+
+    @Test
+    public void testThatSettledEntriesArePrunedAndInFlightOnesKept() {
+        WriteSequences writeSequences = new WriteSequences();
+        Set<String> pruned = new HashSet<>();
+        WriteOrder<String> writeOrder = new WriteOrder<>(writeSequences, pruned::add);
+
+        long stale = writeSequences.next(); //committed but not applied yet
+        long delete = writeSequences.next();
+        assertThat(writeOrder.remove("isbn-0", delete)).isTrue();
+        writeSequences.completed(delete);
+        for (int i = 1; i < 2000; i++) {
+            long sequence = writeSequences.next();
+            writeOrder.put("isbn-" + i, sequence);
+            writeSequences.completed(sequence);
+        }
+        assertThat(pruned).isEmpty(); //everything after the stale write is kept for it
+        assertThat(writeOrder.put("isbn-0", stale)).isFalse(); //the tombstone still holds
+        writeSequences.completed(stale);
+
+        for (int i = 2000; i < 4100; i++) {
+            long sequence = writeSequences.next();
+            writeOrder.put("isbn-" + i, sequence);
+            writeSequences.completed(sequence);
+        }
+        assertThat(pruned).contains("isbn-0");
+        assertThat(writeOrder.size()).isLessThan(1024);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.Library.snapshot;
+
+import com.example.Library.domain.DTO.BookDTO;
+import com.example.Library.domain.Entities.AuthorEntity;
+import com.example.Library.domain.Entities.BookEntity;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CatalogSnapshotTests {
+
+    private static final AuthorEntity ABIGAIL = AuthorEntity.builder().id(7L).name("Abigail Rose").age(80).version(2L).bookCount(3).build();
+    private static final AuthorEntity THOMAS = AuthorEntity.builder().id(3L).name("Thomas Cronin").age(44).version(0L).bookCount(1).build();
+
+    @Test
+    public void testThatLookupsFindWhatWasAdded() {
+        CatalogSnapshot snapshot = catalog();
+
+        assertThat(snapshot.getBookCount()).isEqualTo(5);
+        assertThat(snapshot.getAuthorCount()).isEqualTo(2);
+        BookDTO book = snapshot.findBook("978-1-2345-6789-2").orElseThrow();
+        assertThat(book.getTitle()).isEqualTo("The Shadow in the Attic");
+        assertThat(book.getVersion()).isEqualTo(1L);
+        assertThat(book.getAuthorEntity().getName()).isEqualTo("Abigail Rose");
+        assertThat(book.getAuthorEntity().getBookCount()).isNull();
+        assertThat(snapshot.findAuthor(7L).orElseThrow().getBookCount()).isEqualTo(3);
+        assertThat(snapshot.findBook("978-0-0000-0000-0").orElseThrow().getAuthorEntity()).isNull();
+        assertThat(snapshot.findBook("missing")).isEmpty();
+        assertThat(snapshot.findBooks(List.of("missing", "978-1-2345-6789-1")).keySet()).containsExactly("978-1-2345-6789-1");
+        assertThat(snapshot.findAuthor(3L).orElseThrow().getAge()).isEqualTo(44);
+        assertThat(snapshot.findAuthor(4L)).isEmpty();
+        assertThat(snapshot.authors()).extracting(AuthorEntity::getId).containsExactly(3L, 7L);
+    }
+
+    @Test
+    public void testThatKeysetPagesFollowTheDatabaseOrder() {
+        CatalogSnapshot snapshot = catalog();
+
+        assertThat(snapshot.booksAfter("isbn", null, 2)).extracting(BookEntity::getIsbn)
+                .containsExactly("978-0-0000-0000-0", "978-1-2345-6789-1");
+        assertThat(snapshot.booksAfter("isbn", BookEntity.builder().isbn("978-1-2345-6789-1").build(), 10)).extracting(BookEntity::getIsbn)
+                .containsExactly("978-1-2345-6789-2", "978-1-2345-6789-3", "978-1-2345-6789-4");
+        //equal titles in isbn order
+        assertThat(snapshot.booksAfter("title", null, 10)).extracting(BookEntity::getIsbn)
+                .containsExactly("978-0-0000-0000-0", "978-1-2345-6789-3", "978-1-2345-6789-4", "978-1-2345-6789-1", "978-1-2345-6789-2");
+        BookEntity after = BookEntity.builder().isbn("978-1-2345-6789-3").title("The Last Ember").build();
+        assertThat(snapshot.booksAfter("title", after, 2)).extracting(BookEntity::getIsbn)
+                .containsExactly("978-1-2345-6789-4", "978-1-2345-6789-1");
+
+        assertThat(snapshot.booksByAuthorAfter(7L, null, 10)).extracting(BookEntity::getIsbn)
+                .containsExactly("978-1-2345-6789-1", "978-1-2345-6789-2", "978-1-2345-6789-3");
+        assertThat(snapshot.booksByAuthorAfter(7L, "978-1-2345-6789-1", 1)).extracting(BookEntity::getIsbn)
+                .containsExactly("978-1-2345-6789-2");
+        assertThat(snapshot.booksByAuthorAfter(99L, null, 10)).isEmpty();
+    }
+
+    @Test
+    public void testThatOnlyIsbnOrderedPagesAreServed() {
+        CatalogSnapshot snapshot = catalog();
+
+        assertThat(snapshot.page(PageRequest.of(1, 2)).getContent()).extracting(BookDTO::getIsbn)
+                .containsExactly("978-1-2345-6789-2", "978-1-2345-6789-3");
+        assertThat(snapshot.page(PageRequest.of(0, 2)).getTotalElements()).isEqualTo(5);
+        assertThat(snapshot.page(PageRequest.of(0, 1, Sort.by("isbn").descending())).getContent()).extracting(BookDTO::getIsbn)
+                .containsExactly("978-1-2345-6789-4");
+        assertThat(snapshot.slice(PageRequest.of(2, 2)).hasNext()).isFalse();
+        assertThat(snapshot.slice(PageRequest.of(1, 2)).hasNext()).isTrue();
+        assertThat(snapshot.page(PageRequest.of(0, 2, Sort.by("title")))).isNull();
+    }
+
+    @Test
+    public void testThatEqualStringsAreStoredOnce() {
+        CatalogSnapshot snapshot = catalog();
+
+        String first = snapshot.findBook("978-1-2345-6789-1").orElseThrow().getTitle();
+        String second = snapshot.findBook("978-1-2345-6789-2").orElseThrow().getTitle();
+        assertThat(first).isSameAs(second);
+        assertThat(snapshot.getEstimatedBytes()).isPositive();
+    }
+
+    private static CatalogSnapshot catalog() {
+        //added out of order, as a table scan may return them
+        return CatalogSnapshot.builder()
+                .author(ABIGAIL)
+                .book(book("978-1-2345-6789-3", "The Last Ember", ABIGAIL))
+                .book(book("978-1-2345-6789-1", "The Shadow in the Attic", ABIGAIL))
+                .book(book("978-1-2345-6789-4", "The Last Ember", THOMAS))
+                .book(book("978-0-0000-0000-0", "Alone", null))
+                .book(book("978-1-2345-6789-2", "The Shadow in the Attic", ABIGAIL))
+                .author(THOMAS)
+                .build();
+    }
+
+    private static BookEntity book(String isbn, String title, AuthorEntity author) {
+        //new String: distinct instances for equal titles, like separately read rows
+        return BookEntity.builder().isbn(isbn).title(new String(title)).authorEntity(author).version(1L).build();
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.Library.snapshot;
+
+import com.example.Library.Services.BookService;
+import com.example.Library.TestingUtil;
+import com.example.Library.domain.Entities.AuthorEntity;
+import com.example.Library.domain.Entities.BookEntity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {"library.snapshot.enabled=true", "library.snapshot.refresh=1h"})
+@ExtendWith(SpringExtension.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@AutoConfigureMockMvc
+public class CatalogSnapshotsIntegrationTests {
+    private MockMvc mockMvc;
+
+    private BookService bookService;
+
+    private CatalogSnapshots snapshots;
+
+    @Autowired
+    public CatalogSnapshotsIntegrationTests(MockMvc mockMvc, BookService bookService, CatalogSnapshots snapshots) {
+        this.mockMvc = mockMvc;
+        this.bookService = bookService;
+        this.snapshots = snapshots;
+    }
+
+    @Test
+    public void testThatWritesAreServedAfterTheNextRebuild() throws Exception {
+        AuthorEntity author = TestingUtil.createTestAuthorA();
+        BookEntity book = TestingUtil.createTestBookEntityA(author);
+        bookService.createUpdateBook(book.getIsbn(), book);
+        assertThat(snapshots.current().getBookCount()).isZero();
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/" + book.getIsbn()))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+
+        snapshots.rebuild();
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/books/" + book.getIsbn()))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.title").value(book.getTitle()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.authorEntity.bookCount").doesNotExist());
+        mockMvc.perform(MockMvcRequestBuilders.get("/books"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[0].isbn").value(book.getIsbn()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.totalElements").value(1));
+        mockMvc.perform(MockMvcRequestBuilders.get("/authors"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].name").value(author.getName()));
+    }
+}